@@ -0,0 +1,105 @@
+package com.mamaruo.hospitalinquiry.config;
+
+import java.sql.Connection;
+import java.util.List;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 补充 Hibernate 建表无法表达的数据库对象（PostgreSQL 专用索引等）与新增列的历史数据，并完成主键从自增列到序列的迁移。
+ * <p>
+ * 在其他初始化器之前执行，语句均可重复执行；非 PostgreSQL 数据库直接跳过。
+ * 索引与数据补齐失败只记录日志，应用照常启动；主键序列迁移失败则中止启动，
+ * 否则新插入的行会从未推进的序列取到与现有数据冲突的 id。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseSchemaInitializer implements CommandLineRunner {
+
+    // 尽力执行的语句。varchar_pattern_ops 让 LIKE 'abc%' 在非 C 排序规则下也能走索引
+    private static final List<String> STATEMENTS = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_users_mobile_prefix ON users (mobile varchar_pattern_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_users_name_prefix ON users (name varchar_pattern_ops)",
+            // 吊销时间改为 Instant 后列类型应为 timestamptz；旧列按会话时区（即写入时的 JVM 时区）解释原有值
+            """
+            DO $$
+            BEGIN
+                IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'users'
+                           AND column_name = 'tokens_revoked_at' AND data_type = 'timestamp without time zone') THEN
+                    ALTER TABLE users ALTER COLUMN tokens_revoked_at TYPE timestamptz
+                        USING tokens_revoked_at AT TIME ZONE current_setting('TimeZone');
+                END IF;
+            END $$
+            """,
+            // 吊销时间列新增前已吊销过令牌的用户没有时间记录，按当前时间补齐，保守地再比对一个令牌有效期
+            "UPDATE users SET tokens_revoked_at = now() WHERE token_version > 0 AND tokens_revoked_at IS NULL",
+            // id_card 唯一约束改为显式命名（uk_users_id_card）后，旧库里 Hibernate 自动命名的同列约束成了重复，删掉
+            """
+            DO $$
+            DECLARE c text;
+            BEGIN
+                IF EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'users'::regclass AND conname = 'uk_users_id_card') THEN
+                    FOR c IN SELECT conname FROM pg_constraint
+                            WHERE conrelid = 'users'::regclass AND contype = 'u' AND conname <> 'uk_users_id_card'
+                              AND conkey = ARRAY[(SELECT attnum FROM pg_attribute
+                                                  WHERE attrelid = 'users'::regclass AND attname = 'id_card')]
+                    LOOP
+                        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', c);
+                    END LOOP;
+                END IF;
+            END $$
+            """
+    );
+
+    // 改用池化序列（{表名}_seq，步长 50）生成主键的表。Hibernate 新建的序列从 1 开始，
+    // 需推进到现有最大 id 之后；原自增属性一并去掉，避免库外插入取到与序列冲突的 id。
+    // 序列值只前进不后退，重复执行无副作用。
+    private static final List<String> SEQUENCE_TABLES = List.of(
+            "users", "doctor_profiles", "patient_profiles", "inquiries", "messages");
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatabaseSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        String database = jdbcTemplate.execute(
+                (Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        for (String table : SEQUENCE_TABLES) {
+            migrateToSequence(table);
+        }
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (RuntimeException e) {
+                System.out.println("数据库初始化语句执行失败: " + statement + " - " + e.getMessage());
+            }
+        }
+    }
+
+    // 失败直接抛出，由 Spring Boot 中止启动
+    private void migrateToSequence(String table) {
+        List<String> statements = List.of(
+                "ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY IF EXISTS",
+                "SELECT setval('" + table + "_seq', GREATEST("
+                        + "(SELECT COALESCE(MAX(id), 0) FROM " + table + ") + " + SEQUENCE_INCREMENT + ", "
+                        + "(SELECT last_value FROM " + table + "_seq)))");
+        for (String statement : statements) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("主键序列迁移失败（" + table + "）: " + statement, e);
+            }
+        }
+    }
+}
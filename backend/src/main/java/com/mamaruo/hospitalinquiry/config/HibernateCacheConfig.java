@@ -0,0 +1,96 @@
+package com.mamaruo.hospitalinquiry.config;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate 二级缓存：科室、医生档案、用户、文件公开名这类读多写少的实体缓存在本节点的 Caffeine（JCache）中。
+ * <p>
+ * 各缓存区在这里按条数上限与存活时间显式创建（缺失的缓存区启动即失败，见 application.yml）；
+ * 经由实体的更新由 READ_WRITE 策略同步失效，存活时间兜住库外修改。
+ * 命中率按缓存区以 hibernate.cache.hit.ratio 暴露，计数明细见 hibernate-micrometer 的 hibernate.* 指标。
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    static final List<String> ENTITY_REGIONS = List.of(
+            "departments", "departments.doctors", "doctor-profiles", "users", "file-links");
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            @Value("${app.cache.entity-max-size:10000}") long maxSize,
+            @Value("${app.cache.entity-ttl-minutes:30}") long ttlMinutes) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        for (String region : ENTITY_REGIONS) {
+            createIfAbsent(cacheManager, region, maxSize, ttlMinutes);
+        }
+        createIfAbsent(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, maxSize, ttlMinutes);
+        // 时间戳区记录各表最后更新时间，条目数即表数，不能过期或被淘汰，否则查询缓存会读到旧结果
+        createIfAbsent(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 0, 0);
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    }
+
+    // 同一 JVM 内的多个应用上下文（如测试）共用提供方的默认 CacheManager，已存在的缓存区直接复用
+    private static void createIfAbsent(CacheManager cacheManager, String region, long maxSize, long ttlMinutes) {
+        if (cacheManager.getCache(region) != null) {
+            return;
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (maxSize > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (ttlMinutes > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(ttlMinutes)));
+        }
+        cacheManager.createCache(region, configuration);
+    }
+
+    @Bean
+    MeterBinder secondLevelCacheHitRatio(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : ENTITY_REGIONS) {
+                Gauge.builder("hibernate.cache.hit.ratio", statistics,
+                                s -> hitRatio(s.getDomainDataRegionStatistics(region)))
+                        .tag("region", region)
+                        .description("二级缓存命中率（启动以来）")
+                        .register(registry);
+            }
+            Gauge.builder("hibernate.cache.hit.ratio", statistics,
+                            s -> ratio(s.getQueryCacheHitCount(), s.getQueryCacheMissCount()))
+                    .tag("region", RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME)
+                    .description("二级缓存命中率（启动以来）")
+                    .register(registry);
+        };
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        return region == null ? Double.NaN : ratio(region.getHitCount(), region.getMissCount());
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+    }
+}
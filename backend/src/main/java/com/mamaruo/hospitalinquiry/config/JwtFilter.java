@@ -2,14 +2,12 @@ package com.mamaruo.hospitalinquiry.config;
 
 import java.io.IOException;
 
-import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.mamaruo.hospitalinquiry.service.JwtService;
-import com.mamaruo.hospitalinquiry.service.MyUserDetailService;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -19,11 +17,9 @@ import jakarta.servlet.http.HttpServletResponse;
 @Component
 public class JwtFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
-    private final ApplicationContext context;
 
-    public JwtFilter(JwtService jwtService, ApplicationContext context) {
+    public JwtFilter(JwtService jwtService) {
         this.jwtService = jwtService;
-        this.context = context;
     }
 
     @Override
@@ -36,21 +32,19 @@ public class JwtFilter extends OncePerRequestFilter {
             return;
         }
 
+        // 每个请求最多一次签名校验，用户信息取自令牌声明；无效令牌按未登录放行，由授权规则决定是否拒绝
         String token = header.substring(7);
-        String mobile = jwtService.extractMobile(token);
-
-        var userDetails = context.getBean(
-            MyUserDetailService.class
-        ).loadUserByUsername(mobile);
-        if (jwtService.validToken(token, userDetails)){
-            UsernamePasswordAuthenticationToken authToken =
-                new UsernamePasswordAuthenticationToken(
-                    userDetails,
-                    null,
-                    userDetails.getAuthorities()
-                );
-            authToken.setDetails(userDetails);
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            jwtService.resolvePrincipal(token).ifPresent(principal -> {
+                UsernamePasswordAuthenticationToken authToken =
+                    new UsernamePasswordAuthenticationToken(
+                        principal,
+                        null,
+                        principal.getAuthorities()
+                    );
+                authToken.setDetails(principal);
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            });
         }
         filterChain.doFilter(request, response);
     }
@@ -2,8 +2,11 @@ package com.mamaruo.hospitalinquiry.config;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -14,30 +17,42 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.access.expression.WebExpressionAuthorizationManager;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mamaruo.hospitalinquiry.ratelimit.RateLimitFilter;
+import com.mamaruo.hospitalinquiry.ratelimit.RateLimitProperties;
+import com.mamaruo.hospitalinquiry.ratelimit.RateLimiter;
+
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtFilter jwtFilter;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
 
-    public SecurityConfig(UserDetailsService userDetailsService, JwtFilter jwtFilter) {
+    // 允许免登录抓取 /actuator/prometheus 的网段（Prometheus 所在内网），其余来源需管理员令牌
+    @Value("${app.metrics.scrape-networks:127.0.0.1/32,::1/128}")
+    private List<String> scrapeNetworks;
+
+    public SecurityConfig(UserDetailsService userDetailsService, JwtFilter jwtFilter,
+            RateLimiter rateLimiter, ObjectMapper objectMapper) {
         this.userDetailsService = userDetailsService;
         this.jwtFilter = jwtFilter;
-    }
-
-    /** 配置并返回BCrypt密码编码器Bean，用于对用户密码进行加密与验证 */
-    @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
     }
 
     @Bean
@@ -48,20 +63,40 @@ public class SecurityConfig {
             .httpBasic(AbstractHttpConfigurer::disable)
             .cors(Customizer.withDefaults())
             .authorizeHttpRequests(authorize -> authorize
+                // 异步结果（CompletableFuture 等）的再派发沿用首次请求的鉴权结果
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/signup", "/login").permitAll()
                 .requestMatchers("/ws/**").permitAll()  // WebSocket 端点
+                .requestMatchers("/api/files/uploads/**").authenticated()  // 分片上传需归属到用户
                 .requestMatchers("/api/files/**").permitAll()  // 文件访问
                 .requestMatchers("/api/departments").permitAll()  // 公开科室列表
                 .requestMatchers("/api/doctors/public/**").permitAll()  // 公开医生信息
                 .requestMatchers("/api/users/forgot-password").permitAll()  // 忘记密码（公开）
                 .requestMatchers("swagger-ui/**", "v3/api-docs/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()  // 健康检查
+                .requestMatchers("/actuator/prometheus").access(scrapeAccess())  // 指标抓取：内网或管理员
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")  // 管理接口（含合规导出、批量导入）
                 .anyRequest().authenticated()
             )
+            // 未登录或令牌失效统一返回 401，前端据此跳转登录页
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+            // 限流在令牌校验之后，按用户 id 计数
+            .addFilterAfter(new RateLimitFilter(rateLimiter, objectMapper), JwtFilter.class);
         return http.build();
     }
 
+    private WebExpressionAuthorizationManager scrapeAccess() {
+        StringBuilder expression = new StringBuilder("hasRole('ADMIN')");
+        for (String network : scrapeNetworks) {
+            expression.append(" or hasIpAddress('").append(network.trim()).append("')");
+        }
+        return new WebExpressionAuthorizationManager(expression.toString());
+    }
+
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -74,9 +109,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    AuthenticationProvider authenticationProvider() {
+    AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
+        // 密码编码器见 BoundedPasswordEncoder：BCrypt 在有界线程池上计算
         var provider = new DaoAuthenticationProvider(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
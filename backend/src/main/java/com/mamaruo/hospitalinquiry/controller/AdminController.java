@@ -1,61 +1,123 @@
 package com.mamaruo.hospitalinquiry.controller;
 
-import java.util.List;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.mamaruo.hospitalinquiry.entity.Role;
 import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.dto.DashboardDto;
+import com.mamaruo.hospitalinquiry.entity.dto.ImportResult;
+import com.mamaruo.hospitalinquiry.entity.dto.PageResponse;
 import com.mamaruo.hospitalinquiry.entity.dto.UserResponse;
 import com.mamaruo.hospitalinquiry.repository.UserRepository;
+import com.mamaruo.hospitalinquiry.service.DashboardService;
+import com.mamaruo.hospitalinquiry.service.DoctorTransferService;
+import com.mamaruo.hospitalinquiry.service.RegisteredUserFilter;
+import com.mamaruo.hospitalinquiry.service.UploadLayoutMigration;
+import com.mamaruo.hospitalinquiry.service.UserService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final DoctorTransferService doctorTransferService;
+    private final DashboardService dashboardService;
+    private final UserService userService;
+    private final RegisteredUserFilter registeredUserFilter;
+    private final UploadLayoutMigration uploadLayoutMigration;
 
-    public AdminController(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AdminController(UserRepository userRepository, PasswordEncoder passwordEncoder,
+            DoctorTransferService doctorTransferService, DashboardService dashboardService,
+            UserService userService, RegisteredUserFilter registeredUserFilter,
+            UploadLayoutMigration uploadLayoutMigration) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userService = userService;
+        this.registeredUserFilter = registeredUserFilter;
+        this.uploadLayoutMigration = uploadLayoutMigration;
+        this.doctorTransferService = doctorTransferService;
+        this.dashboardService = dashboardService;
+    }
+
+    // 运行状态仪表盘（本节点）
+    @GetMapping("/dashboard")
+    public DashboardDto getDashboard() {
+        return dashboardService.getDashboard();
     }
 
-    // 获取所有患者
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // 分页获取患者，可按手机号/姓名前缀搜索
     @GetMapping("/patients")
-    public List<UserResponse> getAllPatients() {
-        return userRepository.findAll().stream()
-                .filter(u -> u.getRole() == Role.PATIENT)
-                .map(UserResponse::fromUser)
-                .toList();
+    public PageResponse<UserResponse> getAllPatients(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return listUsers(Role.PATIENT, keyword, page, size);
     }
 
-    // 获取所有医生用户
+    // 分页获取医生用户
     @GetMapping("/doctors")
-    public List<UserResponse> getAllDoctors() {
-        return userRepository.findAll().stream()
-                .filter(u -> u.getRole() == Role.DOCTOR)
-                .map(UserResponse::fromUser)
-                .toList();
+    public PageResponse<UserResponse> getAllDoctors(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return listUsers(Role.DOCTOR, keyword, page, size);
     }
 
-    // 获取所有用户
+    // 分页获取用户，可按角色过滤
     @GetMapping("/users")
-    public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(UserResponse::fromUser)
-                .toList();
+    public PageResponse<UserResponse> getAllUsers(
+            @RequestParam(required = false) Role role,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return listUsers(role, null, page, size);
     }
 
-    // 搜索用户
+    // 搜索用户（手机号或姓名前缀）
     @GetMapping("/users/search")
-    public List<UserResponse> searchUsers(@RequestParam String keyword) {
-        return userRepository.findAll().stream()
-                .filter(u -> (u.getMobile() != null && u.getMobile().contains(keyword)) 
-                        || (u.getName() != null && u.getName().contains(keyword)))
-                .map(UserResponse::fromUser)
-                .toList();
+    public PageResponse<UserResponse> searchUsers(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Role role,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return listUsers(role, keyword, page, size);
+    }
+
+    private PageResponse<UserResponse> listUsers(Role role, String keyword, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("分页参数不正确，每页 1-" + MAX_PAGE_SIZE + " 条");
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        Page<User> users;
+        if (keyword == null || keyword.isBlank()) {
+            users = role == null ? userRepository.findAll(pageable) : userRepository.findByRole(role, pageable);
+        } else {
+            String prefix = escapeLike(keyword.trim()) + "%";
+            users = role == null
+                    ? userRepository.searchByPrefix(prefix, pageable)
+                    : userRepository.searchByRoleAndPrefix(role, prefix, pageable);
+        }
+        return PageResponse.from(users, UserResponse::fromUser);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     // 启用/禁用用户
@@ -64,7 +126,8 @@ public class AdminController {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("用户不存在"));
         user.setEnabled(!user.getEnabled());
-        return UserResponse.fromUser(userRepository.save(user));
+        // 禁用时吊销已签发的令牌，重新启用后旧令牌也不会恢复有效
+        return UserResponse.fromUser(userService.revokeTokens(user));
     }
 
     // 重置用户密码
@@ -75,24 +138,71 @@ public class AdminController {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("用户不存在"));
         user.setPassword(passwordEncoder.encode(request.newPassword()));
-        userRepository.save(user);
+        userService.revokeTokens(user);
         return ResponseEntity.noContent().build();
     }
 
     // 创建管理员账号
     @PostMapping("/create-admin")
     public UserResponse createAdmin(@RequestBody CreateAdminRequest request) {
-        if (userRepository.findByMobile(request.mobile()).isPresent()) {
+        if (registeredUserFilter.mightContainMobile(request.mobile())
+                && userRepository.existsByMobile(request.mobile())) {
             throw new IllegalArgumentException("该手机号已被注册");
         }
-        
+
         User user = new User();
         user.setMobile(request.mobile());
         user.setPassword(passwordEncoder.encode(request.password()));
         user.setName(request.name());
         user.setRole(Role.ADMIN);
-        
-        return UserResponse.fromUser(userRepository.save(user));
+
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw RegisteredUserFilter.duplicateUser(e);
+        }
+        registeredUserFilter.add(saved);
+        return UserResponse.fromUser(saved);
+    }
+
+    // 批量导入医生：请求体直接为 CSV 或 JSON 数组，边读边写入，按手机号/姓名更新已有医生
+    @PostMapping(value = "/doctors/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ImportResult importDoctors(HttpServletRequest request) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        if (contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            return doctorTransferService.importJson(request.getInputStream());
+        }
+        return doctorTransferService.importCsv(request.getInputStream());
+    }
+
+    // 导出全部医生，格式与导入一致
+    @GetMapping("/doctors/export")
+    public ResponseEntity<StreamingResponseBody> exportDoctors(@RequestParam(defaultValue = "csv") String format) {
+        if ("json".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"doctors.json\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(doctorTransferService::exportJson);
+        }
+        if (!"csv".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("不支持的导出格式: " + format);
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"doctors.csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(doctorTransferService::exportCsv);
+    }
+
+    // 把平铺在上传根目录的旧文件迁入分片目录（后台执行，GET 查询进度）
+    @PostMapping("/files/migrate-layout")
+    public UploadLayoutMigration.Status migrateUploadLayout() {
+        return uploadLayoutMigration.start();
+    }
+
+    @GetMapping("/files/migrate-layout")
+    public UploadLayoutMigration.Status getUploadLayoutMigration() {
+        return uploadLayoutMigration.status();
     }
 
     private record ResetPasswordRequest(String newPassword) {}
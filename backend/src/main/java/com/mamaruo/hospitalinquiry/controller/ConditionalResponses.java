@@ -0,0 +1,109 @@
+package com.mamaruo.hospitalinquiry.controller;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import com.mamaruo.hospitalinquiry.service.CatalogSnapshotService;
+import com.mamaruo.hospitalinquiry.service.CatalogVersionService;
+
+/**
+ * 基于目录版本 / 用户版本的条件 GET。
+ * <p>
+ * 版本未变时直接返回 304，不查询数据库也不序列化；返回 null 表示已由
+ * {@link WebRequest#checkNotModified} 写好 304 响应。
+ */
+@Component
+public class ConditionalResponses {
+
+    private final CatalogVersionService catalogVersionService;
+
+    public ConditionalResponses(CatalogVersionService catalogVersionService) {
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    /** 公开目录数据：按目录版本校验 */
+    public <T> ResponseEntity<T> catalog(WebRequest request, Supplier<T> body) {
+        return conditional(request, catalogVersionService.catalogETag(), CacheControl.noCache(), body);
+    }
+
+    /** 用户私有数据：按用户版本校验，只允许客户端缓存 */
+    public <T> ResponseEntity<T> forUser(WebRequest request, Integer userId, Supplier<T> body) {
+        return conditional(request, catalogVersionService.userETag(userId), CacheControl.noCache().cachePrivate(), body);
+    }
+
+    /**
+     * 直接写出预渲染的字节；客户端接受 gzip 且快照带有压缩版本时使用预压缩版本。
+     * <p>
+     * 两种编码的 ETag 不同，而降级渲染的快照没有压缩版本，所以先取快照、确定实际要发送的
+     * ETag 后再做 304 校验。快照命中时取快照只是一次 Map 查找。
+     */
+    public ResponseEntity<byte[]> snapshot(WebRequest request, Supplier<CatalogSnapshotService.Snapshot> loader) {
+        CatalogSnapshotService.Snapshot snapshot = loader.get();
+        boolean gzip = snapshot.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? snapshot.etag() + "-gz" : snapshot.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return builder.body(snapshot.identity());
+    }
+
+    /**
+     * 按 RFC 9110 解析 Accept-Encoding：gzip（或 x-gzip）的 q 值大于 0 才算接受；
+     * 未列出 gzip 时看通配符 *。q 值非法按 0 处理。
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQ = null;
+        Double wildcardQ = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQ = q;
+            } else if (coding.equals("*")) {
+                wildcardQ = q;
+            }
+        }
+        double q = gzipQ != null ? gzipQ : wildcardQ != null ? wildcardQ : 0;
+        return q > 0;
+    }
+
+    private static <T> ResponseEntity<T> conditional(WebRequest request, String etag,
+            CacheControl cacheControl, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .body(body.get());
+    }
+}
@@ -1,30 +1,36 @@
 package com.mamaruo.hospitalinquiry.controller;
 
-import java.util.List;
-
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.mamaruo.hospitalinquiry.entity.dto.DepartmentDto;
+import com.mamaruo.hospitalinquiry.service.CatalogSnapshotService;
 import com.mamaruo.hospitalinquiry.service.DepartmentService;
 
 @RestController
 @RequestMapping("/api/departments")
 public class DepartmentController {
     private final DepartmentService departmentService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ConditionalResponses conditionalResponses;
 
-    public DepartmentController(DepartmentService departmentService) {
+    public DepartmentController(DepartmentService departmentService,
+            CatalogSnapshotService catalogSnapshotService,
+            ConditionalResponses conditionalResponses) {
         this.departmentService = departmentService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.conditionalResponses = conditionalResponses;
     }
 
     @GetMapping
-    public List<DepartmentDto> getAllDepartments() {
-        return departmentService.getAllDepartments();
+    public ResponseEntity<byte[]> getAllDepartments(WebRequest request) {
+        return conditionalResponses.snapshot(request, catalogSnapshotService::getDepartments);
     }
 
     @GetMapping("/{id}")
-    public DepartmentDto getDepartmentById(@PathVariable Integer id) {
-        return departmentService.getDepartmentById(id);
+    public ResponseEntity<DepartmentDto> getDepartmentById(@PathVariable Integer id, WebRequest request) {
+        return conditionalResponses.catalog(request, () -> departmentService.getDepartmentById(id));
     }
 
     @PostMapping
@@ -1,49 +1,103 @@
 package com.mamaruo.hospitalinquiry.controller;
 
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.mamaruo.hospitalinquiry.entity.dto.CreateDoctorRequest;
 import com.mamaruo.hospitalinquiry.entity.dto.DoctorDto;
+import com.mamaruo.hospitalinquiry.entity.dto.RecommendRequest;
+import com.mamaruo.hospitalinquiry.entity.dto.RecommendationDto;
+import com.mamaruo.hospitalinquiry.search.DoctorSearchIndex;
+import com.mamaruo.hospitalinquiry.search.SymptomRecommender;
+import com.mamaruo.hospitalinquiry.service.CatalogSnapshotService;
 import com.mamaruo.hospitalinquiry.service.DoctorService;
+import com.mamaruo.hospitalinquiry.websocket.DoctorPresenceRegistry;
+
+import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/doctors")
 public class DoctorController {
     private final DoctorService doctorService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ConditionalResponses conditionalResponses;
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final SymptomRecommender symptomRecommender;
+    private final DoctorPresenceRegistry presenceRegistry;
 
-    public DoctorController(DoctorService doctorService) {
+    public DoctorController(
+            DoctorService doctorService,
+            CatalogSnapshotService catalogSnapshotService,
+            ConditionalResponses conditionalResponses,
+            DoctorSearchIndex doctorSearchIndex,
+            SymptomRecommender symptomRecommender,
+            DoctorPresenceRegistry presenceRegistry) {
         this.doctorService = doctorService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.conditionalResponses = conditionalResponses;
+        this.doctorSearchIndex = doctorSearchIndex;
+        this.symptomRecommender = symptomRecommender;
+        this.presenceRegistry = presenceRegistry;
     }
 
     // 公开接口 - 获取可用医生列表
     @GetMapping("/public")
-    public List<DoctorDto> getAvailableDoctors() {
-        return doctorService.getAvailableDoctors();
+    public ResponseEntity<byte[]> getAvailableDoctors(WebRequest request) {
+        return conditionalResponses.snapshot(request, catalogSnapshotService::getAvailableDoctors);
     }
 
     // 公开接口 - 按科室获取医生
     @GetMapping("/public/department/{departmentId}")
-    public List<DoctorDto> getDoctorsByDepartment(@PathVariable Integer departmentId) {
-        return doctorService.getDoctorsByDepartment(departmentId);
+    public ResponseEntity<byte[]> getDoctorsByDepartment(
+            @PathVariable Integer departmentId, WebRequest request) {
+        return conditionalResponses.snapshot(request,
+                () -> catalogSnapshotService.getDoctorsByDepartment(departmentId));
+    }
+
+    // 公开接口 - 按姓名/科室/职称/擅长检索医生（输入联想）
+    @GetMapping("/public/search")
+    public List<DoctorDto> searchDoctors(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return doctorSearchIndex.search(q, Math.min(limit, 100));
+    }
+
+    // 公开接口 - 根据病情描述推荐科室与医生
+    @PostMapping("/public/recommend")
+    public RecommendationDto recommend(
+            @Valid @RequestBody RecommendRequest request,
+            @RequestParam(defaultValue = "10") int limit) {
+        return symptomRecommender.recommend(request.symptomDescription(), Math.min(limit, 50));
+    }
+
+    // 公开接口 - 批量查询医生在线状态（userId -> 是否在线），只读内存
+    @GetMapping("/public/presence")
+    public Map<Integer, Boolean> getPresence(@RequestParam List<Integer> userIds) {
+        if (userIds.size() > 500) {
+            throw new IllegalArgumentException("单次最多查询 500 位医生");
+        }
+        return presenceRegistry.getPresence(userIds);
     }
 
     // 公开接口 - 获取单个医生详情
     @GetMapping("/public/{id}")
-    public DoctorDto getDoctorById(@PathVariable Integer id) {
-        return doctorService.getDoctorById(id);
+    public ResponseEntity<DoctorDto> getDoctorById(@PathVariable Integer id, WebRequest request) {
+        return conditionalResponses.catalog(request, () -> doctorService.getDoctorById(id));
     }
 
     // 需要认证的接口
     @GetMapping
-    public List<DoctorDto> getAllDoctors() {
-        return doctorService.getAllDoctors();
+    public ResponseEntity<List<DoctorDto>> getAllDoctors(WebRequest request) {
+        return conditionalResponses.catalog(request, doctorService::getAllDoctors);
     }
 
     @GetMapping("/user/{userId}")
-    public DoctorDto getDoctorByUserId(@PathVariable Integer userId) {
-        return doctorService.getDoctorByUserId(userId);
+    public ResponseEntity<DoctorDto> getDoctorByUserId(@PathVariable Integer userId, WebRequest request) {
+        return conditionalResponses.catalog(request, () -> doctorService.getDoctorByUserId(userId));
     }
 
     @PostMapping
@@ -0,0 +1,101 @@
+package com.mamaruo.hospitalinquiry.controller;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.mamaruo.hospitalinquiry.entity.dto.InquiryExportRow;
+import com.mamaruo.hospitalinquiry.entity.dto.MessageExportRow;
+import com.mamaruo.hospitalinquiry.entity.dto.UserExportRow;
+import com.mamaruo.hospitalinquiry.repository.InquiryRepository;
+import com.mamaruo.hospitalinquiry.repository.MessageRepository;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+import com.mamaruo.hospitalinquiry.service.ExportService;
+
+/**
+ * 合规导出：用户、问诊与聊天记录，格式为 NDJSON（默认）或 CSV，可选 gzip 压缩。
+ * 时间区间为 [from, to)，省略时不限。
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+public class ExportController {
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final ExportService exportService;
+    private final UserRepository userRepository;
+    private final InquiryRepository inquiryRepository;
+    private final MessageRepository messageRepository;
+
+    public ExportController(
+            ExportService exportService,
+            UserRepository userRepository,
+            InquiryRepository inquiryRepository,
+            MessageRepository messageRepository) {
+        this.exportService = exportService;
+        this.userRepository = userRepository;
+        this.inquiryRepository = inquiryRepository;
+        this.messageRepository = messageRepository;
+    }
+
+    @GetMapping("/users")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return export("users", format, gzip, UserExportRow.class, userRepository::streamExportRows);
+    }
+
+    @GetMapping("/inquiries")
+    public ResponseEntity<StreamingResponseBody> exportInquiries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        LocalDateTime start = from != null ? from : EARLIEST;
+        LocalDateTime end = to != null ? to : LATEST;
+        return export("inquiries", format, gzip, InquiryExportRow.class,
+                () -> inquiryRepository.streamExportRows(start, end));
+    }
+
+    // 聊天记录：指定 inquiryId 时只导出该问诊，否则按时间区间导出
+    @GetMapping("/messages")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @RequestParam(required = false) Integer inquiryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        if (inquiryId != null) {
+            return export("messages-" + inquiryId, format, gzip, MessageExportRow.class,
+                    () -> messageRepository.streamExportRowsByInquiryId(inquiryId));
+        }
+        LocalDateTime start = from != null ? from : EARLIEST;
+        LocalDateTime end = to != null ? to : LATEST;
+        return export("messages", format, gzip, MessageExportRow.class,
+                () -> messageRepository.streamExportRows(start, end));
+    }
+
+    private <T extends Record> ResponseEntity<StreamingResponseBody> export(
+            String name, String format, boolean gzip, Class<T> type, Supplier<Stream<T>> rows) {
+        ExportService.Format exportFormat = ExportService.Format.parse(format);
+        String filename = name + "-" + LocalDate.now() + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(exportFormat.contentType());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(contentType)
+                .body(output -> exportService.export(output, exportFormat, gzip, type, rows));
+    }
+}
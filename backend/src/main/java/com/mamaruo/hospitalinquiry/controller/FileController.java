@@ -1,70 +1,207 @@
 package com.mamaruo.hospitalinquiry.controller;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.mamaruo.hospitalinquiry.entity.DoctorProfile;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+import com.mamaruo.hospitalinquiry.entity.dto.UploadInitRequest;
+import com.mamaruo.hospitalinquiry.entity.dto.UploadStatus;
 import com.mamaruo.hospitalinquiry.repository.DoctorProfileRepository;
+import com.mamaruo.hospitalinquiry.service.AvatarCache;
+import com.mamaruo.hospitalinquiry.service.ChunkedUploadService;
 import com.mamaruo.hospitalinquiry.service.FileService;
+import com.mamaruo.hospitalinquiry.service.ImageVariantService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
+    // Tomcat sendfile 约定的请求属性（见 org.apache.coyote.Constants）
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 上传文件多为问诊中的聊天图片，只允许用户自己的浏览器缓存，共享缓存（代理、CDN）不得保存
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
     private final FileService fileService;
     private final DoctorProfileRepository doctorProfileRepository;
+    private final AvatarCache avatarCache;
+    private final ImageVariantService imageVariantService;
+    private final ChunkedUploadService chunkedUploadService;
+
+    // 小文件直接写出比 sendfile 更省事，阈值与 Tomcat DefaultServlet 一致
+    @Value("${app.files.sendfile-min-size:49152}")
+    private long sendfileMinSize;
 
-    public FileController(FileService fileService, DoctorProfileRepository doctorProfileRepository) {
+    public FileController(FileService fileService, DoctorProfileRepository doctorProfileRepository,
+            AvatarCache avatarCache, ImageVariantService imageVariantService,
+            ChunkedUploadService chunkedUploadService) {
         this.fileService = fileService;
         this.doctorProfileRepository = doctorProfileRepository;
+        this.avatarCache = avatarCache;
+        this.imageVariantService = imageVariantService;
+        this.chunkedUploadService = chunkedUploadService;
     }
 
+    // 落盘在文件 I/O 线程池上完成，请求线程随即释放
     @PostMapping("/upload")
-    public UploadResponse uploadFile(@RequestParam("file") MultipartFile file) throws IOException {
-        String filename = fileService.saveFile(file);
-        return new UploadResponse(filename, "/api/files/" + filename);
+    public CompletableFuture<UploadResponse> uploadFile(@RequestParam("file") MultipartFile file) {
+        return fileService.saveFileAsync(file).thenApply(this::uploaded);
     }
 
-    @GetMapping("/{filename}")
-    public ResponseEntity<byte[]> getFile(@PathVariable String filename) throws IOException {
-        byte[] data = fileService.getFile(filename);
-        MediaType mediaType = determineMediaType(filename);
-        return ResponseEntity.ok()
-                .contentType(mediaType)
-                .body(data);
+    /**
+     * 分片上传：先声明文件名、大小与 SHA-256，按返回的 chunk_size 以
+     * PUT /uploads/{id}?offset= 逐片上传原始字节（可乱序、可重传），
+     * 断线后 GET /uploads/{id} 查询缺失分片续传，最后 POST /uploads/{id}/complete 校验入库。
+     */
+    @PostMapping("/uploads")
+    public UploadStatus initUpload(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @Valid @RequestBody UploadInitRequest request) throws IOException {
+        return chunkedUploadService.init(principal.getId(), request);
     }
 
-    // 获取医生头像
-    @GetMapping("/{doctorId}/photo")
-    public ResponseEntity<byte[]> getDoctorPhoto(@PathVariable Integer doctorId) {
-        DoctorProfile doctor = doctorProfileRepository.findById(doctorId)
-                .orElseThrow(() -> new IllegalArgumentException("医生不存在"));
+    @GetMapping("/uploads/{uploadId}")
+    public UploadStatus getUploadStatus(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable String uploadId) {
+        return chunkedUploadService.status(principal.getId(), uploadId);
+    }
+
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public UploadStatus uploadChunk(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request) throws IOException {
+        return chunkedUploadService.writeChunk(principal.getId(), uploadId, offset, request.getInputStream());
+    }
 
-        if (doctor.getPhotoPath() == null) {
-            return ResponseEntity.notFound().build();
+    @PostMapping("/uploads/{uploadId}/complete")
+    public CompletableFuture<UploadResponse> completeUpload(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable String uploadId) {
+        return chunkedUploadService.complete(principal.getId(), uploadId).thenApply(this::uploaded);
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public void abortUpload(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable String uploadId) throws IOException {
+        chunkedUploadService.abort(principal.getId(), uploadId);
+    }
+
+    /**
+     * 文件下载不经过堆内存：完整下载在容器支持时交给 Tomcat sendfile 零拷贝发送，
+     * 否则以 FileSystemResource 流式写出；带 Range 头的请求由 Spring 按区间返回 206。
+     * <p>
+     * 随机公开名（及早期 UUID 命名）的上传文件内容不变，ETag 取自公开名并允许浏览器私有地永久缓存，
+     * 条件请求在访问文件系统之前即返回 304；其他文件按大小与修改时间生成 ETag，每次重新验证。
+     * size=thumb/medium 返回缩放后的变体；变体尚未生成时在后台生成，本次先返回原图，
+     * 且按普通文件重新验证，不让浏览器把原图当作变体永久缓存。
+     */
+    @GetMapping("/{filename}")
+    public ResponseEntity<Resource> getFile(
+            @PathVariable String filename,
+            @RequestParam(required = false) String size,
+            HttpServletRequest request, WebRequest webRequest) throws IOException {
+        ImageVariantService.Size variant = ImageVariantService.Size.parse(size);
+        String immutableETag = variant == null
+                ? FileService.contentTag(filename) : FileService.contentTag(filename) + "@" + variant.key();
+        boolean immutable = FileService.isImmutableName(filename);
+        if (immutable && webRequest.checkNotModified(immutableETag)) {
+            return null;
         }
 
-        FileService.DoctorPhoto photo = fileService.getDoctorPhoto(doctor.getPhotoPath());
+        Path path = imageVariantService.variant(filename, variant);
+        if (path == null) {
+            path = fileService.resolveFile(filename);
+            immutable = false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long length = attributes.size();
+        String etag = immutable ? immutableETag
+                : Long.toHexString(length) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        if (!immutable && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(FileService.determineMediaType(filename))
+                .cacheControl(immutable ? IMMUTABLE : CacheControl.noCache())
+                .eTag(etag);
+        if (request.getHeader(HttpHeaders.RANGE) == null && trySendfile(request, path, length)) {
+            return builder
+                    .contentLength(length)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .build();
+        }
+        return builder.body(new FileSystemResource(path));
+    }
+
+    // 获取医生头像；缓存命中时既不查库也不读文件，ETag 取自照片路径
+    @GetMapping("/{doctorId}/photo")
+    public ResponseEntity<?> getDoctorPhoto(
+            @PathVariable Integer doctorId,
+            @RequestParam(required = false) String size,
+            WebRequest webRequest) {
+        ImageVariantService.Size variant = ImageVariantService.Size.parse(size);
+        AvatarCache.CachedPhoto cached = avatarCache.get(doctorId, variant);
+        if (cached == null) {
+            DoctorProfile doctor = doctorProfileRepository.findById(doctorId)
+                    .orElseThrow(() -> new IllegalArgumentException("医生不存在"));
+            if (doctor.getPhotoPath() == null) {
+                return ResponseEntity.notFound().build();
+            }
+            String etag = AvatarCache.photoETag(doctor.getPhotoPath(), variant);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+            cached = avatarCache.load(doctorId, doctor.getPhotoPath(), variant);
+        } else if (webRequest.checkNotModified(cached.etag())) {
+            return null;
+        }
         return ResponseEntity.ok()
-                .contentType(determineMediaType(photo.filename()))
-                .body(photo.data());
+                .contentType(cached.mediaType())
+                .cacheControl(CacheControl.noCache())
+                .eTag(cached.etag())
+                .body(cached.data());
     }
 
-    private MediaType determineMediaType(String filename) {
-        String lower = filename.toLowerCase();
-        if (lower.endsWith(".png")) {
-            return MediaType.IMAGE_PNG;
-        } else if (lower.endsWith(".gif")) {
-            return MediaType.IMAGE_GIF;
-        } else if (lower.endsWith(".webp")) {
-            return MediaType.valueOf("image/webp");
-        } else if (lower.endsWith(".svg")) {
-            return MediaType.valueOf("image/svg+xml");
+    private boolean trySendfile(HttpServletRequest request, Path path, long size) {
+        if (size < sendfileMinSize || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
         }
-        return MediaType.IMAGE_JPEG;
+        request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, size);
+        return true;
+    }
+
+    private UploadResponse uploaded(String filename) {
+        imageVariantService.generateAsync(filename);
+        return new UploadResponse(filename, "/api/files/" + filename);
     }
 
     private record UploadResponse(String filename, String url) {}
@@ -2,8 +2,10 @@ package com.mamaruo.hospitalinquiry.controller;
 
 import java.util.List;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
 import com.mamaruo.hospitalinquiry.entity.dto.CreateInquiryRequest;
@@ -14,33 +16,43 @@ import com.mamaruo.hospitalinquiry.service.InquiryService;
 @RequestMapping("/api/inquiries")
 public class InquiryController {
     private final InquiryService inquiryService;
+    private final ConditionalResponses conditionalResponses;
 
-    public InquiryController(InquiryService inquiryService) {
+    public InquiryController(InquiryService inquiryService, ConditionalResponses conditionalResponses) {
         this.inquiryService = inquiryService;
+        this.conditionalResponses = conditionalResponses;
     }
 
     // 患者获取自己的问诊列表
     @GetMapping("/patient")
-    public List<InquiryDto> getPatientInquiries(@AuthenticationPrincipal UserPrincipal principal) {
-        return inquiryService.getInquiriesByPatientUserId(principal.getId());
+    public ResponseEntity<List<InquiryDto>> getPatientInquiries(
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        return conditionalResponses.forUser(request, principal.getId(),
+                () -> inquiryService.getInquiriesByPatientUserId(principal.getId()));
     }
 
     // 医生获取自己的所有问诊
     @GetMapping("/doctor")
-    public List<InquiryDto> getDoctorInquiries(@AuthenticationPrincipal UserPrincipal principal) {
-        return inquiryService.getInquiriesByDoctorUserId(principal.getId());
+    public ResponseEntity<List<InquiryDto>> getDoctorInquiries(
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        return conditionalResponses.forUser(request, principal.getId(),
+                () -> inquiryService.getInquiriesByDoctorUserId(principal.getId()));
     }
 
     // 医生获取待接诊列表
     @GetMapping("/doctor/pending")
-    public List<InquiryDto> getDoctorPendingInquiries(@AuthenticationPrincipal UserPrincipal principal) {
-        return inquiryService.getPendingInquiriesByDoctorUserId(principal.getId());
+    public ResponseEntity<List<InquiryDto>> getDoctorPendingInquiries(
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        return conditionalResponses.forUser(request, principal.getId(),
+                () -> inquiryService.getPendingInquiriesByDoctorUserId(principal.getId()));
     }
 
     // 医生获取进行中的问诊
     @GetMapping("/doctor/in-progress")
-    public List<InquiryDto> getDoctorInProgressInquiries(@AuthenticationPrincipal UserPrincipal principal) {
-        return inquiryService.getInProgressInquiriesByDoctorUserId(principal.getId());
+    public ResponseEntity<List<InquiryDto>> getDoctorInProgressInquiries(
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        return conditionalResponses.forUser(request, principal.getId(),
+                () -> inquiryService.getInProgressInquiriesByDoctorUserId(principal.getId()));
     }
 
     // 获取单个问诊详情
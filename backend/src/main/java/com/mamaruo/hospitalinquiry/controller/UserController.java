@@ -14,26 +14,33 @@ import com.mamaruo.hospitalinquiry.entity.dto.LoginRequest;
 import com.mamaruo.hospitalinquiry.entity.dto.LoginResponse;
 import com.mamaruo.hospitalinquiry.entity.dto.SignupRequest;
 import com.mamaruo.hospitalinquiry.entity.dto.UserResponse;
+import com.mamaruo.hospitalinquiry.ratelimit.LoginThrottle;
 import com.mamaruo.hospitalinquiry.service.UserService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 
 @RestController
 public class UserController {
     private final UserService userService;
+    private final LoginThrottle loginThrottle;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, LoginThrottle loginThrottle) {
         this.userService = userService;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/signup")
-    public UserResponse signup(@Valid @RequestBody SignupRequest request) {
+    public UserResponse signup(@Valid @RequestBody SignupRequest request, HttpServletRequest http) {
+        loginThrottle.check(http.getRemoteAddr(), null);
         return userService.signup(request);
     }
 
     @PostMapping("/login")
-    public LoginResponse login(@RequestBody LoginRequest request) {
+    public LoginResponse login(@RequestBody LoginRequest request, HttpServletRequest http) {
+        // 先限流再校验密码，被拒绝的请求不消耗 BCrypt 计算
+        loginThrottle.check(http.getRemoteAddr(), request.mobile());
         return userService.verify(request);
     }
 
@@ -53,7 +60,8 @@ public class UserController {
 
     // 忘记密码：通过手机号+身份证号重置密码（公开接口）
     @PostMapping("/api/users/forgot-password")
-    public void forgotPassword(@Valid @RequestBody ForgotPasswordRequest request) {
+    public void forgotPassword(@Valid @RequestBody ForgotPasswordRequest request, HttpServletRequest http) {
+        loginThrottle.check(http.getRemoteAddr(), request.mobile());
         userService.forgotPassword(request);
     }
 }
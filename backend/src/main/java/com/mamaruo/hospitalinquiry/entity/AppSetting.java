@@ -0,0 +1,40 @@
+package com.mamaruo.hospitalinquiry.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * 系统键值设置（如启动导入的数据指纹）
+ */
+@Entity
+@Table(name = "app_settings")
+public class AppSetting {
+    @Id
+    @Column(name = "setting_key", length = 100)
+    private String key;
+
+    @Column(name = "setting_value", columnDefinition = "TEXT")
+    private String value;
+
+    public AppSetting() {}
+
+    public AppSetting(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+}
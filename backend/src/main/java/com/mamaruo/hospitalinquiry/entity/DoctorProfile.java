@@ -2,14 +2,20 @@ package com.mamaruo.hospitalinquiry.entity;
 
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
- * 医生档案实体
+ * 医生档案实体（二级缓存）
  */
 @Entity
 @Table(name = "doctor_profiles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctor-profiles")
 public class DoctorProfile {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "doctor_profiles_seq")
+    @SequenceGenerator(name = "doctor_profiles_seq", sequenceName = "doctor_profiles_seq", allocationSize = 50)
     private Integer id;
 
     @OneToOne
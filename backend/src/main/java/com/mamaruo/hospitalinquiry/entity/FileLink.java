@@ -0,0 +1,61 @@
+package com.mamaruo.hospitalinquiry.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * 上传文件的公开名：每次上传生成随机文件名，指向按内容寻址存储的文件（{@link StoredFile}）。
+ * 摘要只在服务端使用，不出现在 URL 中，外部无法凭内容摘要探测某个文件是否存在。
+ * 公开名与指向写入后不再变化，按只读实体缓存。
+ */
+@Entity
+@Table(name = "file_links")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "file-links")
+public class FileLink {
+    @Id
+    @Column(length = 80)
+    private String name;
+
+    @Column(nullable = false, length = 80)
+    private String storedFilename;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public FileLink() {}
+
+    public FileLink(String name, String storedFilename) {
+        this.name = name;
+        this.storedFilename = storedFilename;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getStoredFilename() {
+        return storedFilename;
+    }
+
+    public void setStoredFilename(String storedFilename) {
+        this.storedFilename = storedFilename;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 @Table(name = "inquiries")
 public class Inquiry {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inquiries_seq")
+    @SequenceGenerator(name = "inquiries_seq", sequenceName = "inquiries_seq", allocationSize = 50)
     private Integer id;
 
     @ManyToOne
@@ -10,7 +10,8 @@ import java.time.LocalDate;
 @Table(name = "patient_profiles")
 public class PatientProfile {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_profiles_seq")
+    @SequenceGenerator(name = "patient_profiles_seq", sequenceName = "patient_profiles_seq", allocationSize = 50)
     private Integer id;
 
     @ManyToOne
@@ -0,0 +1,69 @@
+package com.mamaruo.hospitalinquiry.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * 按内容寻址的上传文件：文件名为内容的 SHA-256 加扩展名，相同内容只存一份，
+ * 引用计数归零时才删除文件。该文件名只在服务端使用，对外经 {@link FileLink} 的随机公开名访问。
+ */
+@Entity
+@Table(name = "stored_files")
+public class StoredFile {
+    @Id
+    @Column(length = 80)
+    private String filename;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,5 +1,8 @@
 package com.mamaruo.hospitalinquiry.entity;
 
+import java.time.Instant;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -7,16 +10,35 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotBlank;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 import com.mamaruo.hospitalinquiry.validation.Mobile;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+        indexes = @Index(name = "idx_users_role_id", columnList = "role, id"),
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.UK_MOBILE, columnNames = "mobile"),
+                @UniqueConstraint(name = User.UK_ID_CARD, columnNames = "id_card")
+        })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
+    // 唯一约束名，插入冲突时据此给出对应提示
+    public static final String UK_MOBILE = "uk_users_mobile";
+    public static final String UK_ID_CARD = "uk_users_id_card";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Integer id;
     @Mobile
     private String mobile;
@@ -25,7 +47,7 @@ public class User {
     // @Column(nullable = false)
     // @NotBlank
     private String name;
-    @Column(unique = true, length = 18)
+    @Column(length = 18)
     // @NotBlank
     private String idCard;
     
@@ -36,6 +58,12 @@ public class User {
     @Column(nullable = false)
     private Boolean enabled = true;  // 账号是否启用
 
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer tokenVersion = 0;  // 令牌版本，修改密码、禁用等操作后递增，使已签发的令牌失效
+
+    private Instant tokensRevokedAt;  // 最近一次递增令牌版本的时间，超过令牌有效期后旧令牌已全部过期
+
     public String getName() {
         return name;
     }
@@ -91,4 +119,20 @@ public class User {
     public void setEnabled(Boolean enabled) {
         this.enabled = enabled;
     }
-}
\ No newline at end of file
+
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Instant getTokensRevokedAt() {
+        return tokensRevokedAt;
+    }
+
+    public void setTokensRevokedAt(Instant tokensRevokedAt) {
+        this.tokensRevokedAt = tokensRevokedAt;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mamaruo.hospitalinquiry.entity;
 
+import java.io.Serial;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -7,43 +8,64 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+/**
+ * 当前登录用户。
+ * <p>
+ * 登录时由数据库中的用户构建（带密码哈希，用于校验）；之后的请求直接由令牌声明构建，
+ * 只有 id、手机号和角色，不访问数据库。
+ */
 public class UserPrincipal implements UserDetails{
 
-    private final User user;
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Integer id;
+    private final String mobile;
+    private final Role role;
+    private final String password;
+    private final boolean enabled;
 
     public UserPrincipal(User user) {
-        this.user = user;
+        this.id = user.getId();
+        this.mobile = user.getMobile();
+        this.role = user.getRole();
+        this.password = user.getPassword();
+        this.enabled = user.getEnabled();
     }
 
-    public Integer getId() {
-        return user.getId();
+    public UserPrincipal(Integer id, String mobile, Role role) {
+        this.id = id;
+        this.mobile = mobile;
+        this.role = role;
+        this.password = null;
+        this.enabled = true;
     }
 
-    public Role getRole() {
-        return user.getRole();
+    public Integer getId() {
+        return id;
     }
 
-    public User getUser() {
-        return user;
+    public Role getRole() {
+        return role;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singleton(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+        return Collections.singleton(new SimpleGrantedAuthority("ROLE_" + role.name()));
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getMobile();
+        return mobile;
     }
 
     @Override
     public boolean isEnabled() {
-        return user.getEnabled();
+        return enabled;
     }
 }
@@ -0,0 +1,24 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理端运行状态仪表盘（本节点），耗时单位均为毫秒
+ */
+public record DashboardDto(
+    int activeSessions,
+    int onlineDoctors,
+    double inboundFramesPerSecond,
+    double outboundFramesPerSecond,
+    long inboundFramesTotal,
+    long outboundFramesTotal,
+    LatencyStats messageSave,
+    LatencyStats messageDelivery,
+    Map<String, Long> pendingByDepartment,
+    List<EndpointStats> endpoints
+) {
+    public record LatencyStats(long count, double meanMs, double maxMs, double p50Ms, double p95Ms, double p99Ms) {}
+
+    public record EndpointStats(String method, String uri, String status, LatencyStats latency) {}
+}
@@ -1,5 +1,7 @@
 package com.mamaruo.hospitalinquiry.entity.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public record DoctorDto(
     Integer id,
     Integer userId,
@@ -10,5 +12,13 @@ public record DoctorDto(
     String title,
     String expertise,
     String photoUrl,
-    Boolean available
-) {}
+    Boolean available,
+    // 仅检索与推荐结果即时填充；目录接口与快照中省略
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Boolean online
+) {
+    public DoctorDto withOnline(boolean online) {
+        return new DoctorDto(id, userId, name, mobile, departmentName, departmentId,
+                title, expertise, photoUrl, available, online);
+    }
+}
@@ -0,0 +1,14 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+/**
+ * 医生导出行，列与 {@link DoctorImportRow} 一致，导出文件可直接重新导入
+ */
+public record DoctorExportRow(
+    String name,
+    String mobile,
+    String department,
+    String title,
+    String expertise,
+    String photoPath,
+    Boolean available
+) {}
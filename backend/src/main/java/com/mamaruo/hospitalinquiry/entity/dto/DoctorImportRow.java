@@ -0,0 +1,31 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/**
+ * 批量导入的一条医生数据（doctors.json、管理端 CSV/JSON 上传）。
+ * 手机号可省略，省略时按姓名生成；available 省略时默认接诊。
+ */
+public record DoctorImportRow(
+    @NotBlank(message = "姓名不能为空")
+    @Size(max = 50, message = "姓名过长")
+    String name,
+
+    @Pattern(regexp = "^1\\d{10}$", message = "手机号格式不正确")
+    String mobile,
+
+    @NotBlank(message = "科室不能为空")
+    String department,
+
+    @NotBlank(message = "职称不能为空")
+    String title,
+
+    String expertise,
+
+    // 只接受打包头像或已上传文件的文件名，不允许路径
+    @Pattern(regexp = "^[A-Za-z0-9][A-Za-z0-9._-]{0,127}$", message = "照片须为头像或已上传文件的文件名，不能包含路径")
+    String photoPath,
+    Boolean available
+) {}
@@ -0,0 +1,14 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import java.util.List;
+
+public record ImportResult(
+    int created,
+    int updated,
+    int skipped,
+    int failed,
+    List<RowError> errors  // 最多返回前若干条，总数见 failed
+) {
+    /** 出错的记录（CSV 为记录序号，表头计为第 1 行；JSON 为数组中的第几个元素） */
+    public record RowError(int line, String message) {}
+}
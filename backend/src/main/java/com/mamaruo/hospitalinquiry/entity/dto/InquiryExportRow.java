@@ -0,0 +1,19 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import java.time.LocalDateTime;
+
+import com.mamaruo.hospitalinquiry.entity.InquiryStatus;
+
+public record InquiryExportRow(
+    Integer id,
+    InquiryStatus status,
+    Integer patientUserId,
+    String patientName,
+    Integer doctorId,
+    String doctorName,
+    String departmentName,
+    String symptomDescription,
+    LocalDateTime createdAt,
+    LocalDateTime acceptedAt,
+    LocalDateTime completedAt
+) {}
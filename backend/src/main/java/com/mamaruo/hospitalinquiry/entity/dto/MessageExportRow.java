@@ -0,0 +1,17 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import java.time.LocalDateTime;
+
+import com.mamaruo.hospitalinquiry.entity.MessageType;
+import com.mamaruo.hospitalinquiry.entity.Role;
+
+public record MessageExportRow(
+    Long id,
+    Integer inquiryId,
+    Integer senderId,
+    String senderName,
+    Role senderRole,
+    MessageType type,
+    String content,
+    LocalDateTime createdAt
+) {}
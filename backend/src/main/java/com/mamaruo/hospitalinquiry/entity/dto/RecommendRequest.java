@@ -0,0 +1,9 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RecommendRequest(
+    @NotBlank(message = "病情描述不能为空")
+    String symptomDescription
+) {
+}
@@ -0,0 +1,14 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import java.util.List;
+
+public record RecommendationDto(
+    List<DepartmentScore> departments,
+    List<DoctorDto> doctors
+) {
+    public record DepartmentScore(
+        Integer id,
+        String name,
+        double score
+    ) {}
+}
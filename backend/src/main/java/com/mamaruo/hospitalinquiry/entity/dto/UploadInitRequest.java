@@ -0,0 +1,20 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+public record UploadInitRequest(
+    @NotBlank(message = "文件名不能为空")
+    String filename,
+
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    Long size,
+
+    @NotBlank(message = "校验和不能为空")
+    @Pattern(regexp = "[0-9a-fA-F]{64}", message = "校验和须为 SHA-256 十六进制")
+    String sha256
+) {
+}
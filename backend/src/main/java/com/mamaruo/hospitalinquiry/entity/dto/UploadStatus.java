@@ -0,0 +1,16 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import java.util.List;
+
+/**
+ * 分片上传进度；断线后客户端据 missingChunks 补传。
+ */
+public record UploadStatus(
+    String uploadId,
+    String filename,
+    long size,
+    int chunkSize,
+    long receivedBytes,
+    List<Integer> missingChunks
+) {
+}
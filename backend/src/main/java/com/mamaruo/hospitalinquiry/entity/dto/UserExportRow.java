@@ -0,0 +1,12 @@
+package com.mamaruo.hospitalinquiry.entity.dto;
+
+import com.mamaruo.hospitalinquiry.entity.Role;
+
+public record UserExportRow(
+    Integer id,
+    String mobile,
+    String name,
+    String idCard,
+    Role role,
+    Boolean enabled
+) {}
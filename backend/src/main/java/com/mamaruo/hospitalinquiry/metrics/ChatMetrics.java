@@ -0,0 +1,158 @@
+package com.mamaruo.hospitalinquiry.metrics;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 聊天链路指标：活跃会话数、连接建立/关闭次数、收发帧数、消息落库耗时、落库到广播完成的耗时。
+ * <p>
+ * 计数器与计时器同时发布到 Prometheus；收发帧速率每 10 秒采样一次，供管理端仪表盘直接展示。
+ */
+@Component
+public class ChatMetrics {
+
+    private static final long SAMPLE_SECONDS = 10;
+
+    private final MeterRegistry registry;
+    private final Counter inboundFrames;
+    private final Counter outboundFrames;
+    private final Counter openedConnections;
+    private final Counter closedConnections;
+    private final Timer saveTimer;
+    private final Timer deliveryTimer;
+    private Gauge activeSessions;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chat-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 以下字段只由采样线程写入
+    private double lastInbound;
+    private double lastOutbound;
+    private volatile double inboundRate;
+    private volatile double outboundRate;
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.inboundFrames = Counter.builder("chat.frames")
+                .tag("direction", "inbound")
+                .description("收到的 WebSocket 帧数")
+                .register(registry);
+        this.outboundFrames = Counter.builder("chat.frames")
+                .tag("direction", "outbound")
+                .description("发出的 WebSocket 帧数")
+                .register(registry);
+        this.openedConnections = Counter.builder("chat.connections")
+                .tag("event", "opened")
+                .description("建立的聊天 WebSocket 连接数")
+                .register(registry);
+        this.closedConnections = Counter.builder("chat.connections")
+                .tag("event", "closed")
+                .description("关闭的聊天 WebSocket 连接数")
+                .register(registry);
+        this.saveTimer = Timer.builder("chat.message.save")
+                .description("聊天消息落库耗时（含事务提交）")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.deliveryTimer = Timer.builder("chat.message.delivery")
+                .description("消息落库后到广播给所有参与者完成的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /** 由 WebSocket 处理器注册其会话表，活跃会话数即表的大小 */
+    public void bindSessions(Map<?, ?> sessions) {
+        activeSessions = Gauge.builder("chat.sessions.active", sessions, Map::size)
+                .description("本节点活跃的聊天 WebSocket 会话数")
+                .register(registry);
+    }
+
+    public void connectionOpened() {
+        openedConnections.increment();
+    }
+
+    public void connectionClosed() {
+        closedConnections.increment();
+    }
+
+    public void inbound() {
+        inboundFrames.increment();
+    }
+
+    public void outbound() {
+        outboundFrames.increment();
+    }
+
+    public <T> T timeSave(Supplier<T> save) {
+        return saveTimer.record(save);
+    }
+
+    public void recordDelivery(long startNanos) {
+        deliveryTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getActiveSessions() {
+        return activeSessions == null ? 0 : (int) activeSessions.value();
+    }
+
+    public long getInboundTotal() {
+        return (long) inboundFrames.count();
+    }
+
+    public long getOutboundTotal() {
+        return (long) outboundFrames.count();
+    }
+
+    public double getInboundRate() {
+        return inboundRate;
+    }
+
+    public double getOutboundRate() {
+        return outboundRate;
+    }
+
+    public Timer getSaveTimer() {
+        return saveTimer;
+    }
+
+    public Timer getDeliveryTimer() {
+        return deliveryTimer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        lastInbound = inboundFrames.count();
+        lastOutbound = outboundFrames.count();
+        sampler.scheduleAtFixedRate(this::sample, SAMPLE_SECONDS, SAMPLE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    private void sample() {
+        double inbound = inboundFrames.count();
+        double outbound = outboundFrames.count();
+        inboundRate = (inbound - lastInbound) / SAMPLE_SECONDS;
+        outboundRate = (outbound - lastOutbound) / SAMPLE_SECONDS;
+        lastInbound = inbound;
+        lastOutbound = outbound;
+    }
+}
@@ -0,0 +1,78 @@
+package com.mamaruo.hospitalinquiry.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.mamaruo.hospitalinquiry.repository.InquiryRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 各科室待接诊问诊数。
+ * <p>
+ * 定时执行一次分组计数查询并刷新 inquiry.pending 指标（按科室打标签），
+ * 抓取指标与打开仪表盘都只读内存中的结果，不会触发数据库查询。
+ */
+@Component
+public class InquiryQueueMetrics {
+
+    private final InquiryRepository inquiryRepository;
+    private final MultiGauge pendingGauge;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "inquiry-queue-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.metrics.queue-refresh-seconds:15}")
+    private long refreshSeconds;
+
+    private volatile Map<String, Long> pendingByDepartment = Map.of();
+
+    public InquiryQueueMetrics(InquiryRepository inquiryRepository, MeterRegistry registry) {
+        this.inquiryRepository = inquiryRepository;
+        this.pendingGauge = MultiGauge.builder("inquiry.pending")
+                .description("各科室待接诊的问诊数")
+                .register(registry);
+    }
+
+    public Map<String, Long> getPendingByDepartment() {
+        return pendingByDepartment;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::refresh, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void refresh() {
+        try {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            inquiryRepository.countPendingByDepartment()
+                    .forEach(row -> counts.put(row.getDepartmentName(), row.getCount()));
+            pendingGauge.register(counts.entrySet().stream()
+                    .map(e -> MultiGauge.Row.of(Tags.of("department", e.getKey()), e.getValue()))
+                    .toList(), true);
+            pendingByDepartment = Map.copyOf(counts);
+        } catch (RuntimeException e) {
+            System.err.println("待接诊队列指标刷新失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mamaruo.hospitalinquiry.ratelimit;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+import com.mamaruo.hospitalinquiry.entity.dto.ErrorResponse;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * REST 限流过滤器，位于 JwtFilter 之后，按校验通过的用户 id 与来源地址计数。
+ * <p>
+ * 只在安全过滤链中注册（见 SecurityConfig），因此不声明为 Spring 组件，避免被重复注册为 Servlet 过滤器。
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        try {
+            rateLimiter.check(path, currentUserId(), request.getRemoteAddr());
+        } catch (TooManyRequestsException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getOutputStream(), ErrorResponse.of(
+                    HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", e.getMessage(), request.getRequestURI()));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal
+                ? principal.getId() : null;
+    }
+}
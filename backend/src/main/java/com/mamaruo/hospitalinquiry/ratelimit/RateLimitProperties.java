@@ -0,0 +1,32 @@
+package com.mamaruo.hospitalinquiry.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 限流配置（app.rate-limit）。
+ * <p>
+ * policies 按顺序匹配请求路径（不含 context-path），命中第一条即止；
+ * 每条策略可分别配置按用户与按来源 IP 的配额，未配置的维度不限；未登录的请求只计 IP 配额。
+ * chat 为每个用户在聊天 WebSocket 上的文本帧配额，chatBinary 为图片二进制帧配额（一张图片分多帧到达，需单独放宽）。
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("16384") int stripes,
+        List<Policy> policies,
+        Limit chat,
+        Limit chatBinary) {
+
+    public RateLimitProperties {
+        policies = policies == null ? List.of() : List.copyOf(policies);
+    }
+
+    public record Policy(String name, List<String> patterns, Limit perUser, Limit perIp) {}
+
+    /** 每 period 允许 capacity 次，同时也是允许的突发量 */
+    public record Limit(int capacity, Duration period) {}
+}
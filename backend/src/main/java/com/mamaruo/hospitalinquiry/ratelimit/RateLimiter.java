@@ -0,0 +1,134 @@
+package com.mamaruo.hospitalinquiry.ratelimit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 按路由分组的 REST 限流与聊天会话限流。
+ * <p>
+ * 每条策略各持有按用户、按 IP 两组 {@link StripedTokenBucket}，内存占用与用户数无关。
+ * 用户以令牌校验后的用户 id 区分，伪造或随意更换 Authorization 头得不到新的配额；
+ * 未登录或令牌无效的请求只受 IP 配额约束，因此每条策略都应配置 per-ip。
+ * 聊天帧配额同样按用户计，断线重连不会重置。
+ */
+@Component
+public class RateLimiter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final boolean enabled;
+    private final List<CompiledPolicy> policies;
+    private final StripedTokenBucket chatBuckets;
+    private final Counter chatRejected;
+    private final StripedTokenBucket chatBinaryBuckets;
+    private final Counter chatBinaryRejected;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.policies = properties.policies().stream()
+                .map(policy -> new CompiledPolicy(
+                        policy.name(),
+                        policy.patterns() == null ? List.of() : List.copyOf(policy.patterns()),
+                        buckets(properties.stripes(), policy.perUser()),
+                        buckets(properties.stripes(), policy.perIp()),
+                        rejectedCounter(meterRegistry, policy.name(), "user"),
+                        rejectedCounter(meterRegistry, policy.name(), "ip")))
+                .toList();
+        this.chatBuckets = buckets(properties.stripes(), properties.chat());
+        this.chatRejected = rejectedCounter(meterRegistry, "chat", "user");
+        this.chatBinaryBuckets = buckets(properties.stripes(), properties.chatBinary());
+        this.chatBinaryRejected = rejectedCounter(meterRegistry, "chat-binary", "user");
+    }
+
+    private record CompiledPolicy(
+            String name,
+            List<String> patterns,
+            StripedTokenBucket userBuckets,
+            StripedTokenBucket ipBuckets,
+            Counter userRejected,
+            Counter ipRejected) {}
+
+    private static StripedTokenBucket buckets(int stripes, RateLimitProperties.Limit limit) {
+        if (limit == null || limit.capacity() <= 0 || limit.period() == null) {
+            return null;
+        }
+        return new StripedTokenBucket(stripes, limit.capacity(), limit.period());
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String policy, String scope) {
+        return Counter.builder("ratelimit.rejected")
+                .tag("policy", policy)
+                .tag("scope", scope)
+                .description("被限流拒绝的请求/消息数")
+                .register(registry);
+    }
+
+    /**
+     * 按路径匹配的策略消耗配额，超限抛出 {@link TooManyRequestsException}。
+     *
+     * @param path   不含 context-path 的请求路径
+     * @param userId 令牌校验通过的用户 id，未登录时为 null
+     * @param ip     来源地址
+     */
+    public void check(String path, Integer userId, String ip) {
+        if (!enabled) {
+            return;
+        }
+        CompiledPolicy policy = match(path);
+        if (policy == null) {
+            return;
+        }
+        if (policy.userBuckets() != null && userId != null) {
+            long wait = policy.userBuckets().tryAcquire(userId);
+            if (wait > 0) {
+                policy.userRejected().increment();
+                throw new TooManyRequestsException("请求过于频繁，请稍后再试", toSeconds(wait));
+            }
+        }
+        if (policy.ipBuckets() != null && ip != null) {
+            long wait = policy.ipBuckets().tryAcquire(ip);
+            if (wait > 0) {
+                policy.ipRejected().increment();
+                throw new TooManyRequestsException("请求过于频繁，请稍后再试", toSeconds(wait));
+            }
+        }
+    }
+
+    /** 聊天会话收到一帧时按发送者调用，返回 false 表示应丢弃该帧 */
+    public boolean tryAcquireChat(Integer userId) {
+        if (!enabled || chatBuckets == null || chatBuckets.tryAcquire(userId) == 0) {
+            return true;
+        }
+        chatRejected.increment();
+        return false;
+    }
+
+    /** 聊天会话收到一个二进制帧（图片分段）时按发送者调用，返回 false 表示应丢弃该帧 */
+    public boolean tryAcquireChatBinary(Integer userId) {
+        if (!enabled || chatBinaryBuckets == null || chatBinaryBuckets.tryAcquire(userId) == 0) {
+            return true;
+        }
+        chatBinaryRejected.increment();
+        return false;
+    }
+
+    private CompiledPolicy match(String path) {
+        for (CompiledPolicy policy : policies) {
+            for (String pattern : policy.patterns()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long toSeconds(long nanos) {
+        return TimeUnit.NANOSECONDS.toSeconds(nanos) + 1;
+    }
+}
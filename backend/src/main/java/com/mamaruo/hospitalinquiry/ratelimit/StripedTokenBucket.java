@@ -0,0 +1,62 @@
+package com.mamaruo.hospitalinquiry.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按键分条带的令牌桶，无锁、内存占用固定。
+ * <p>
+ * 每个条带只存一个 long：下一个令牌的“理论到达时间”（GCRA 形式的令牌桶），
+ * 一次 CAS 即完成取令牌，不需要为每个键分配对象，也无需清理过期键。
+ * 不同的键可能哈希到同一条带而共享配额，条带数应远大于同时活跃的键数。
+ */
+public final class StripedTokenBucket {
+
+    private final AtomicLongArray tats;
+    private final int mask;
+    private final long intervalNanos;  // 补充一个令牌所需时间
+    private final long burstNanos;     // 桶容量对应的时间窗
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param stripes  条带数，向上取整为 2 的幂
+     * @param capacity 桶容量（允许的突发请求数）
+     * @param period   每 period 补充 capacity 个令牌
+     */
+    public StripedTokenBucket(int stripes, int capacity, Duration period) {
+        if (capacity <= 0 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("令牌桶容量与周期必须为正");
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.tats = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+        this.burstNanos = intervalNanos * capacity;
+    }
+
+    /**
+     * 尝试为 key 取一个令牌。
+     *
+     * @return 0 表示放行；否则为距离下一个可用令牌的纳秒数
+     */
+    public long tryAcquire(Object key) {
+        int index = spread(key.hashCode()) & mask;
+        while (true) {
+            long now = System.nanoTime() - origin;
+            long tat = tats.get(index);
+            long next = Math.max(tat, now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (tats.compareAndSet(index, tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
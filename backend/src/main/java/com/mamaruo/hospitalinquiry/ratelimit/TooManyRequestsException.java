@@ -0,0 +1,23 @@
+package com.mamaruo.hospitalinquiry.ratelimit;
+
+import java.io.Serial;
+
+/**
+ * 请求过于频繁或服务端过载，由全局异常处理映射为 429，并带上 Retry-After 响应头。
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package com.mamaruo.hospitalinquiry.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.mamaruo.hospitalinquiry.entity.AppSetting;
+
+public interface AppSettingRepository extends JpaRepository<AppSetting, String> {
+}
@@ -1,5 +1,7 @@
 package com.mamaruo.hospitalinquiry.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.mamaruo.hospitalinquiry.entity.Department;
@@ -7,4 +9,5 @@ import com.mamaruo.hospitalinquiry.entity.Department;
 public interface DepartmentRepository extends JpaRepository<Department, Integer> {
     Optional<Department> findByName(String name);
     boolean existsByName(String name);
+    List<Department> findByNameIn(Collection<String> names);
 }
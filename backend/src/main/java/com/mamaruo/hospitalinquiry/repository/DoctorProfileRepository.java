@@ -1,17 +1,55 @@
 package com.mamaruo.hospitalinquiry.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
 import com.mamaruo.hospitalinquiry.entity.Department;
 import com.mamaruo.hospitalinquiry.entity.DoctorProfile;
 import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorExportRow;
+
+import jakarta.persistence.QueryHint;
 
 public interface DoctorProfileRepository extends JpaRepository<DoctorProfile, Integer> {
     Optional<DoctorProfile> findByUser(User user);
+    // 以下查询结果进入查询缓存（只存 id，实体取自二级缓存），doctor_profiles 有写入即失效
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<DoctorProfile> findByUserId(Integer userId);
     List<DoctorProfile> findByDepartment(Department department);
     List<DoctorProfile> findByDepartmentId(Integer departmentId);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<DoctorProfile> findByAvailableTrue();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<DoctorProfile> findByDepartmentIdAndAvailableTrue(Integer departmentId);
+
+    // 批量导入：按姓名 / 手机号查出已有医生（连同用户与科室）
+    @Query("SELECT d FROM DoctorProfile d JOIN FETCH d.user u JOIN FETCH d.department WHERE u.name IN :names")
+    List<DoctorProfile> findWithUserByNameIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT d FROM DoctorProfile d JOIN FETCH d.user u JOIN FETCH d.department WHERE u.mobile IN :mobiles")
+    List<DoctorProfile> findWithUserByMobileIn(@Param("mobiles") Collection<String> mobiles);
+
+    // 导出：逐行读取的投影，调用方需处于事务中并及时关闭流
+    @Query("SELECT new com.mamaruo.hospitalinquiry.entity.dto.DoctorExportRow("
+            + "u.name, u.mobile, dep.name, d.title, d.expertise, d.photoPath, d.available) "
+            + "FROM DoctorProfile d JOIN d.user u JOIN d.department dep ORDER BY d.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<DoctorExportRow> streamExportRows();
+
+    // 头像缓存预热：有照片的医生及其照片路径
+    @Query("SELECT d.id AS id, d.photoPath AS photoPath FROM DoctorProfile d WHERE d.photoPath IS NOT NULL")
+    List<PhotoPath> findPhotoPaths();
+
+    interface PhotoPath {
+        Integer getId();
+        String getPhotoPath();
+    }
 }
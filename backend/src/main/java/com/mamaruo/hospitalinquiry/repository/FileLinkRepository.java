@@ -0,0 +1,8 @@
+package com.mamaruo.hospitalinquiry.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.mamaruo.hospitalinquiry.entity.FileLink;
+
+public interface FileLinkRepository extends JpaRepository<FileLink, String> {
+}
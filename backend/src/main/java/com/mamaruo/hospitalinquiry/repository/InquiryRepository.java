@@ -1,11 +1,21 @@
 package com.mamaruo.hospitalinquiry.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+
 import com.mamaruo.hospitalinquiry.entity.Inquiry;
 import com.mamaruo.hospitalinquiry.entity.InquiryStatus;
+import com.mamaruo.hospitalinquiry.entity.dto.InquiryExportRow;
+
+import jakarta.persistence.QueryHint;
 
 public interface InquiryRepository extends JpaRepository<Inquiry, Integer> {
     // 根据问诊人所属用户ID查询
@@ -28,4 +38,34 @@ public interface InquiryRepository extends JpaRepository<Inquiry, Integer> {
     
     // 根据状态查询
     List<Inquiry> findByStatus(InquiryStatus status);
+
+    // 最近的病情描述（用于构建科室推荐索引）
+    @Query("SELECT i.doctor.id AS doctorId, i.symptomDescription AS symptomDescription FROM Inquiry i "
+            + "WHERE i.symptomDescription IS NOT NULL ORDER BY i.createdAt DESC")
+    List<SymptomSample> findRecentSymptoms(Pageable pageable);
+
+    // 导出：按创建时间区间逐行读取的投影，调用方需处于事务中并及时关闭流
+    @Query("SELECT new com.mamaruo.hospitalinquiry.entity.dto.InquiryExportRow("
+            + "i.id, i.status, pu.id, p.name, d.id, du.name, dep.name, i.symptomDescription, "
+            + "i.createdAt, i.acceptedAt, i.completedAt) "
+            + "FROM Inquiry i JOIN i.patientProfile p JOIN p.user pu JOIN i.doctor d JOIN d.user du "
+            + "JOIN d.department dep WHERE i.createdAt >= :from AND i.createdAt < :to ORDER BY i.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<InquiryExportRow> streamExportRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // 各科室待接诊数（用于队列指标），没有待接诊的科室不返回
+    @Query("SELECT dep.name AS departmentName, COUNT(i) AS count FROM Inquiry i JOIN i.doctor d "
+            + "JOIN d.department dep WHERE i.status = com.mamaruo.hospitalinquiry.entity.InquiryStatus.PENDING "
+            + "GROUP BY dep.id, dep.name ORDER BY dep.name")
+    List<DepartmentCount> countPendingByDepartment();
+
+    interface DepartmentCount {
+        String getDepartmentName();
+        Long getCount();
+    }
+
+    interface SymptomSample {
+        Integer getDoctorId();
+        String getSymptomDescription();
+    }
 }
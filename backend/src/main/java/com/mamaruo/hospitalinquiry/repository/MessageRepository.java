@@ -1,9 +1,20 @@
 package com.mamaruo.hospitalinquiry.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
 import com.mamaruo.hospitalinquiry.entity.Inquiry;
 import com.mamaruo.hospitalinquiry.entity.Message;
+import com.mamaruo.hospitalinquiry.entity.dto.MessageExportRow;
+
+import jakarta.persistence.QueryHint;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByInquiryOrderByCreatedAtAsc(Inquiry inquiry);
@@ -11,4 +22,18 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     
     // 获取某条消息之后的新消息
     List<Message> findByInquiryIdAndIdGreaterThanOrderByCreatedAtAsc(Integer inquiryId, Long afterId);
+
+    // 导出聊天记录：逐行读取的投影，调用方需处于事务中并及时关闭流
+    @Query("SELECT new com.mamaruo.hospitalinquiry.entity.dto.MessageExportRow("
+            + "m.id, m.inquiry.id, s.id, s.name, s.role, m.type, m.content, m.createdAt) "
+            + "FROM Message m JOIN m.sender s WHERE m.createdAt >= :from AND m.createdAt < :to "
+            + "ORDER BY m.inquiry.id, m.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<MessageExportRow> streamExportRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.mamaruo.hospitalinquiry.entity.dto.MessageExportRow("
+            + "m.id, m.inquiry.id, s.id, s.name, s.role, m.type, m.content, m.createdAt) "
+            + "FROM Message m JOIN m.sender s WHERE m.inquiry.id = :inquiryId ORDER BY m.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<MessageExportRow> streamExportRowsByInquiryId(@Param("inquiryId") Integer inquiryId);
 }
@@ -0,0 +1,41 @@
+package com.mamaruo.hospitalinquiry.repository;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+import com.mamaruo.hospitalinquiry.entity.StoredFile;
+
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    // 新内容插入一行，已有内容引用数加一；单条语句，并发上传同一内容也不会冲突。
+    // 原生语句需声明影响的表，否则 Hibernate 会清空全部二级缓存区域
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "stored_files"))
+    @Query(value = "INSERT INTO stored_files (filename, sha256, size, ref_count, created_at) "
+            + "VALUES (:filename, :sha256, :size, 1, now()) "
+            + "ON CONFLICT (filename) DO UPDATE SET ref_count = stored_files.ref_count + 1",
+            nativeQuery = true)
+    void acquire(@Param("filename") String filename, @Param("sha256") String sha256, @Param("size") long size);
+
+    // 释放一次引用：先锁定该行，多于一次时减一，最后一次时删除记录；单条语句，并发释放不会漏减或重复删除。
+    // 返回 1 表示最后一个引用已释放、记录已删除，调用方此后才可删除文件
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "stored_files"))
+    @Query(value = "WITH locked AS ("
+            + "SELECT filename, ref_count FROM stored_files WHERE filename = :filename FOR UPDATE), "
+            + "decremented AS ("
+            + "UPDATE stored_files f SET ref_count = l.ref_count - 1 FROM locked l "
+            + "WHERE f.filename = l.filename AND l.ref_count > 1 RETURNING f.filename) "
+            + "DELETE FROM stored_files f USING locked l WHERE f.filename = l.filename AND l.ref_count <= 1",
+            nativeQuery = true)
+    int release(@Param("filename") String filename);
+}
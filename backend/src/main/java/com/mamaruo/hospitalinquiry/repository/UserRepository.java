@@ -1,14 +1,73 @@
 package com.mamaruo.hospitalinquiry.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.mamaruo.hospitalinquiry.entity.Role;
 import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.dto.UserExportRow;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByMobile(String mobile);
     Optional<User> findByIdCard(String idCard);
-}
\ No newline at end of file
+    boolean existsByMobile(String mobile);
+    boolean existsByIdCard(String idCard);
+    List<User> findByMobileIn(Collection<String> mobiles);
+
+    Page<User> findByRole(Role role, Pageable pageable);
+
+    // 手机号或姓名前缀匹配，prefix 需已转义通配符并以 % 结尾（由 varchar_pattern_ops 索引支持）
+    @Query(value = "SELECT u FROM User u WHERE u.mobile LIKE :prefix ESCAPE '\\' OR u.name LIKE :prefix ESCAPE '\\'",
+            countQuery = "SELECT COUNT(u) FROM User u WHERE u.mobile LIKE :prefix ESCAPE '\\' OR u.name LIKE :prefix ESCAPE '\\'")
+    Page<User> searchByPrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query(value = "SELECT u FROM User u WHERE u.role = :role "
+            + "AND (u.mobile LIKE :prefix ESCAPE '\\' OR u.name LIKE :prefix ESCAPE '\\')",
+            countQuery = "SELECT COUNT(u) FROM User u WHERE u.role = :role "
+            + "AND (u.mobile LIKE :prefix ESCAPE '\\' OR u.name LIKE :prefix ESCAPE '\\')")
+    Page<User> searchByRoleAndPrefix(@Param("role") Role role, @Param("prefix") String prefix, Pageable pageable);
+
+    // 导出：逐行读取的投影，调用方需处于事务中并及时关闭流
+    @Query("SELECT new com.mamaruo.hospitalinquiry.entity.dto.UserExportRow("
+            + "u.id, u.mobile, u.name, u.idCard, u.role, u.enabled) FROM User u ORDER BY u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<UserExportRow> streamExportRows();
+
+    // 注册查重过滤器装载用，调用方需处于事务中并及时关闭流
+    @Query("SELECT u.mobile FROM User u WHERE u.mobile IS NOT NULL")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamMobiles();
+
+    @Query("SELECT u.idCard FROM User u WHERE u.idCard IS NOT NULL")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamIdCards();
+
+    // 令牌吊销表：只取 since 之后吊销过令牌（更早吊销的旧令牌均已过期）或已禁用的用户；
+    // 吊销时间列新增前吊销过令牌、尚未补齐时间的用户也一并取出
+    @Query("SELECT u.id AS id, u.tokenVersion AS tokenVersion, u.tokensRevokedAt AS tokensRevokedAt, "
+            + "u.enabled AS enabled FROM User u WHERE u.tokensRevokedAt > :since "
+            + "OR (u.tokensRevokedAt IS NULL AND u.tokenVersion > 0) OR u.enabled = false")
+    List<TokenState> findRevocationStates(@Param("since") Instant since);
+
+    interface TokenState {
+        Integer getId();
+        Integer getTokenVersion();
+        Instant getTokensRevokedAt();
+        Boolean getEnabled();
+    }
+}
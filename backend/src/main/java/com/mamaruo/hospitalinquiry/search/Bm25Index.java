@@ -0,0 +1,111 @@
+package com.mamaruo.hospitalinquiry.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 不可变的 BM25 索引，词项为 {@link NGramTokenizer} 产生的字符 n-gram。
+ * <p>
+ * 构建后只读，可在多线程间安全共享；需要更新时整体重建后替换引用。
+ */
+public final class Bm25Index<K> {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final List<K> keys;
+    private final float[] lengthNorms;  // 预计算的 K1 * (1 - B + B * dl / avgdl)
+    private final Map<String, Posting> postings;
+
+    private record Posting(float idf, int[] docs, int[] tfs) {}
+
+    private Bm25Index(List<K> keys, float[] lengthNorms, Map<String, Posting> postings) {
+        this.keys = keys;
+        this.lengthNorms = lengthNorms;
+        this.postings = postings;
+    }
+
+    /** 文档 -> 文本，文本可多次追加（如擅长领域 + 历史病情描述） */
+    public static <K> Bm25Index<K> build(Map<K, ? extends CharSequence> documents) {
+        List<K> keys = new ArrayList<>(documents.size());
+        int[] lengths = new int[documents.size()];
+        Map<String, List<int[]>> raw = new HashMap<>();  // term -> [doc, tf]
+
+        long totalLength = 0;
+        for (Map.Entry<K, ? extends CharSequence> entry : documents.entrySet()) {
+            int doc = keys.size();
+            keys.add(entry.getKey());
+            Map<String, Integer> tf = new HashMap<>();
+            for (String segment : NGramTokenizer.segments(entry.getValue().toString())) {
+                int[] cps = segment.codePoints().toArray();
+                for (int i = 0; i + 1 < cps.length; i++) {
+                    tf.merge(new String(cps, i, 2), 1, Integer::sum);
+                }
+                if (cps.length == 1) {
+                    tf.merge(segment, 1, Integer::sum);
+                }
+            }
+            int length = tf.values().stream().mapToInt(Integer::intValue).sum();
+            lengths[doc] = length;
+            totalLength += length;
+            tf.forEach((term, count) -> raw.computeIfAbsent(term, k -> new ArrayList<>()).add(new int[] {doc, count}));
+        }
+
+        int n = keys.size();
+        float avgLength = n == 0 ? 1f : Math.max(1f, (float) totalLength / n);
+        float[] lengthNorms = new float[n];
+        for (int i = 0; i < n; i++) {
+            lengthNorms[i] = K1 * (1 - B + B * lengths[i] / avgLength);
+        }
+
+        Map<String, Posting> postings = new HashMap<>(raw.size() * 2);
+        raw.forEach((term, entries) -> {
+            int df = entries.size();
+            float idf = (float) Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            int[] docs = new int[df];
+            int[] tfs = new int[df];
+            for (int i = 0; i < df; i++) {
+                docs[i] = entries.get(i)[0];
+                tfs[i] = entries.get(i)[1];
+            }
+            postings.put(term, new Posting(idf, docs, tfs));
+        });
+        return new Bm25Index<>(List.copyOf(keys), lengthNorms, postings);
+    }
+
+    /** 返回有得分的文档及其 BM25 分数（未排序） */
+    public Map<K, Float> score(String query) {
+        Set<String> terms = NGramTokenizer.queryGrams(query);
+        float[] scores = new float[keys.size()];
+        boolean any = false;
+        for (String term : terms) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            any = true;
+            for (int i = 0; i < posting.docs().length; i++) {
+                int doc = posting.docs()[i];
+                int tf = posting.tfs()[i];
+                scores[doc] += posting.idf() * tf * (K1 + 1) / (tf + lengthNorms[doc]);
+            }
+        }
+        if (!any) {
+            return Map.of();
+        }
+        Map<K, Float> result = new HashMap<>();
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] > 0) {
+                result.put(keys.get(doc), scores[doc]);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+}
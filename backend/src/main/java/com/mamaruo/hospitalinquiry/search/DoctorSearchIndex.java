@@ -0,0 +1,185 @@
+package com.mamaruo.hospitalinquiry.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorDto;
+import com.mamaruo.hospitalinquiry.service.DepartmentService;
+import com.mamaruo.hospitalinquiry.service.DoctorService;
+import com.mamaruo.hospitalinquiry.websocket.DoctorPresenceRegistry;
+
+/**
+ * 医生检索的内存倒排索引。
+ * <p>
+ * 以字符 n-gram 为词项，索引姓名、科室名、职称和擅长领域；倒排表记录命中的字段位图，
+ * 用于按字段加权打分。启动时全量构建，之后随医生/科室变更事件增量更新。
+ * 写入串行化，读取无锁。
+ */
+@Component
+public class DoctorSearchIndex {
+
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_DEPARTMENT = 1 << 1;
+    private static final int FIELD_TITLE = 1 << 2;
+    private static final int FIELD_EXPERTISE = 1 << 3;
+
+    private final DoctorService doctorService;
+    private final DoctorPresenceRegistry presenceRegistry;
+
+    // doctorId -> 已索引的文档
+    private final Map<Integer, IndexedDoctor> documents = new ConcurrentHashMap<>();
+    // gram -> (doctorId -> 命中字段位图)
+    private final Map<String, Map<Integer, Integer>> postings = new ConcurrentHashMap<>();
+
+    public DoctorSearchIndex(DoctorService doctorService, DoctorPresenceRegistry presenceRegistry) {
+        this.doctorService = doctorService;
+        this.presenceRegistry = presenceRegistry;
+    }
+
+    private record IndexedDoctor(DoctorDto doctor, Map<String, Integer> grams) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<DoctorDto> doctors = doctorService.getAllDoctors();
+        synchronized (this) {
+            documents.clear();
+            postings.clear();
+            doctors.forEach(this::put);
+        }
+        System.out.println("医生检索索引构建完成，共 " + doctors.size() + " 条记录");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorService.DoctorChangedEvent event) {
+        synchronized (this) {
+            put(event.doctor());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDepartmentChanged(DepartmentService.DepartmentChangedEvent event) {
+        synchronized (this) {
+            documents.values().stream()
+                    .map(IndexedDoctor::doctor)
+                    .filter(d -> event.departmentId().equals(d.departmentId()))
+                    .filter(d -> !event.name().equals(d.departmentName()))
+                    .toList()
+                    .forEach(d -> put(withDepartmentName(d, event.name())));
+        }
+    }
+
+    /**
+     * 按相关度检索医生。查询 n-gram 至少命中七成的医生才入选，
+     * 得分综合字段权重、姓名前缀匹配、是否接诊和是否在线；在线状态取查询时的实时值。
+     */
+    public List<DoctorDto> search(String query, int limit) {
+        Set<String> queryGrams = NGramTokenizer.queryGrams(query);
+        if (queryGrams.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Integer, float[]> candidates = new HashMap<>();  // doctorId -> {得分, 命中数}
+        for (String gram : queryGrams) {
+            Map<Integer, Integer> posting = postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            posting.forEach((doctorId, fields) -> {
+                float[] acc = candidates.computeIfAbsent(doctorId, k -> new float[2]);
+                acc[0] += fieldWeight(fields);
+                acc[1] += 1;
+            });
+        }
+
+        int minMatched = Math.max(1, (int) Math.ceil(queryGrams.size() * 0.7));
+        String normalized = String.join("", NGramTokenizer.segments(query));
+        List<ScoredDoctor> results = new ArrayList<>();
+        candidates.forEach((doctorId, acc) -> {
+            if (acc[1] < minMatched) {
+                return;
+            }
+            IndexedDoctor indexed = documents.get(doctorId);
+            if (indexed == null) {
+                return;
+            }
+            DoctorDto doctor = indexed.doctor().withOnline(presenceRegistry.isOnline(indexed.doctor().userId()));
+            float score = acc[0] / queryGrams.size();
+            if (doctor.name() != null && doctor.name().toLowerCase().startsWith(normalized)) {
+                score += 2f;
+            }
+            if (Boolean.TRUE.equals(doctor.available())) {
+                score += 1f;
+            }
+            if (Boolean.TRUE.equals(doctor.online())) {
+                score += 0.5f;
+            }
+            results.add(new ScoredDoctor(doctor, score));
+        });
+
+        return results.stream()
+                .sorted(Comparator.comparingDouble(ScoredDoctor::score).reversed()
+                        .thenComparing(s -> s.doctor().id()))
+                .limit(limit)
+                .map(ScoredDoctor::doctor)
+                .toList();
+    }
+
+    private record ScoredDoctor(DoctorDto doctor, float score) {}
+
+    private void put(DoctorDto doctor) {
+        IndexedDoctor previous = documents.get(doctor.id());
+        Map<String, Integer> grams = new HashMap<>();
+        addGrams(grams, doctor.name(), FIELD_NAME);
+        addGrams(grams, doctor.departmentName(), FIELD_DEPARTMENT);
+        addGrams(grams, doctor.title(), FIELD_TITLE);
+        addGrams(grams, doctor.expertise(), FIELD_EXPERTISE);
+
+        if (previous != null) {
+            previous.grams().keySet().stream()
+                    .filter(gram -> !grams.containsKey(gram))
+                    .forEach(gram -> removePosting(gram, doctor.id()));
+        }
+        grams.forEach((gram, fields) ->
+                postings.computeIfAbsent(gram, k -> new ConcurrentHashMap<>()).put(doctor.id(), fields));
+        documents.put(doctor.id(), new IndexedDoctor(doctor, grams));
+    }
+
+    private void removePosting(String gram, Integer doctorId) {
+        postings.computeIfPresent(gram, (k, posting) -> {
+            posting.remove(doctorId);
+            return posting.isEmpty() ? null : posting;
+        });
+    }
+
+    private static void addGrams(Map<String, Integer> grams, String text, int field) {
+        for (String gram : NGramTokenizer.indexGrams(text)) {
+            grams.merge(gram, field, (a, b) -> a | b);
+        }
+    }
+
+    // 姓名最重要，其次科室与擅长，职称区分度最低
+    private static float fieldWeight(int fields) {
+        if ((fields & FIELD_NAME) != 0) {
+            return 3f;
+        }
+        if ((fields & (FIELD_DEPARTMENT | FIELD_EXPERTISE)) != 0) {
+            return 2f;
+        }
+        return 1f;
+    }
+
+    private static DoctorDto withDepartmentName(DoctorDto d, String departmentName) {
+        return new DoctorDto(d.id(), d.userId(), d.name(), d.mobile(), departmentName,
+                d.departmentId(), d.title(), d.expertise(), d.photoUrl(), d.available(), d.online());
+    }
+}
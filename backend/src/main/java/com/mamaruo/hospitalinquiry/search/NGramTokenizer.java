@@ -0,0 +1,68 @@
+package com.mamaruo.hospitalinquiry.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 字符 n-gram 分词。
+ * <p>
+ * 中文没有天然的词边界，按字符切分 unigram/bigram 即可覆盖“糖尿病”“内分泌”这类检索，
+ * 无需引入分词词典。文本先统一小写，标点与空白作为片段分隔符，n-gram 不跨片段。
+ */
+public final class NGramTokenizer {
+
+    private NGramTokenizer() {}
+
+    /** 规范化后按标点/空白切成片段 */
+    public static List<String> segments(String text) {
+        List<String> segments = new ArrayList<>();
+        if (text == null) {
+            return segments;
+        }
+        StringBuilder current = new StringBuilder();
+        text.codePoints().forEach(cp -> {
+            if (Character.isLetterOrDigit(cp)) {
+                current.appendCodePoint(Character.toLowerCase(cp));
+            } else if (current.length() > 0) {
+                segments.add(current.toString());
+                current.setLength(0);
+            }
+        });
+        if (current.length() > 0) {
+            segments.add(current.toString());
+        }
+        return segments;
+    }
+
+    /** 索引用：每个片段的全部 unigram 与 bigram */
+    public static Set<String> indexGrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String segment : segments(text)) {
+            int[] cps = segment.codePoints().toArray();
+            for (int i = 0; i < cps.length; i++) {
+                grams.add(new String(cps, i, 1));
+                if (i + 1 < cps.length) {
+                    grams.add(new String(cps, i, 2));
+                }
+            }
+        }
+        return grams;
+    }
+
+    /** 查询用：有 bigram 时只用 bigram（更有区分度），单字片段才退回 unigram */
+    public static Set<String> queryGrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String segment : segments(text)) {
+            int[] cps = segment.codePoints().toArray();
+            if (cps.length == 1) {
+                grams.add(segment);
+            }
+            for (int i = 0; i + 1 < cps.length; i++) {
+                grams.add(new String(cps, i, 2));
+            }
+        }
+        return grams;
+    }
+}
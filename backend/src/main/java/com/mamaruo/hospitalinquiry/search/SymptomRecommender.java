@@ -0,0 +1,177 @@
+package com.mamaruo.hospitalinquiry.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorDto;
+import com.mamaruo.hospitalinquiry.entity.dto.RecommendationDto;
+import com.mamaruo.hospitalinquiry.repository.InquiryRepository;
+import com.mamaruo.hospitalinquiry.service.CatalogVersionService;
+import com.mamaruo.hospitalinquiry.service.DoctorService;
+import com.mamaruo.hospitalinquiry.websocket.DoctorPresenceRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 根据病情描述推荐科室与医生。
+ * <p>
+ * 每个科室的文档由其医生的擅长领域与历史问诊的病情描述拼成，每位医生的文档由
+ * 职称、擅长领域与其历史病情描述拼成，分别建立 BM25 索引。索引在后台线程构建，
+ * 目录变更时合并重建，并定期刷新以纳入新的问诊记录；查询只读内存中的索引。
+ */
+@Component
+public class SymptomRecommender {
+
+    private static final int MAX_DEPARTMENTS = 3;
+
+    private final DoctorService doctorService;
+    private final InquiryRepository inquiryRepository;
+    private final DoctorPresenceRegistry presenceRegistry;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "symptom-recommender");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @Value("${app.recommend.history-size:20000}")
+    private int historySize;
+
+    @Value("${app.recommend.refresh-minutes:30}")
+    private long refreshMinutes;
+
+    private volatile Model model = new Model(
+            Bm25Index.build(Map.of()), Bm25Index.build(Map.of()), Map.of(), Map.of(), Map.of());
+
+    public SymptomRecommender(
+            DoctorService doctorService,
+            InquiryRepository inquiryRepository,
+            DoctorPresenceRegistry presenceRegistry) {
+        this.doctorService = doctorService;
+        this.inquiryRepository = inquiryRepository;
+        this.presenceRegistry = presenceRegistry;
+    }
+
+    private record Model(
+            Bm25Index<Integer> departments,
+            Bm25Index<Integer> doctors,
+            Map<Integer, DoctorDto> doctorsById,
+            Map<Integer, List<Integer>> doctorsByDepartment,
+            Map<Integer, String> departmentNames) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::scheduleRebuild, 0, refreshMinutes, TimeUnit.MINUTES);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogVersionService.CatalogChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public RecommendationDto recommend(String symptomDescription, int limit) {
+        Model current = model;
+
+        Map<Integer, Float> departmentScores = current.departments().score(symptomDescription);
+        float best = departmentScores.values().stream().max(Float::compare).orElse(1f);
+        List<RecommendationDto.DepartmentScore> departments = departmentScores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed())
+                .limit(MAX_DEPARTMENTS)
+                .map(e -> new RecommendationDto.DepartmentScore(
+                        e.getKey(), current.departmentNames().get(e.getKey()), e.getValue() / best))
+                .toList();
+
+        // 医生得分 = 自身 BM25 + 所在科室的归一化得分，只推荐接诊中的医生
+        Map<Integer, Float> doctorScores = new HashMap<>(current.doctors().score(symptomDescription));
+        departmentScores.forEach((departmentId, score) -> current.doctorsByDepartment()
+                .getOrDefault(departmentId, List.of())
+                .forEach(doctorId -> doctorScores.merge(doctorId, score / best, Float::sum)));
+
+        List<DoctorDto> doctors = doctorScores.entrySet().stream()
+                .filter(e -> {
+                    DoctorDto d = current.doctorsById().get(e.getKey());
+                    return d != null && Boolean.TRUE.equals(d.available());
+                })
+                .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(limit)
+                .map(e -> current.doctorsById().get(e.getKey()))
+                .map(d -> d.withOnline(presenceRegistry.isOnline(d.userId())))
+                .toList();
+
+        return new RecommendationDto(departments, doctors);
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    System.err.println("推荐索引构建失败: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        List<DoctorDto> doctors = doctorService.getAllDoctors();
+        Map<Integer, DoctorDto> doctorsById = new HashMap<>();
+        Map<Integer, List<Integer>> doctorsByDepartment = new HashMap<>();
+        Map<Integer, String> departmentNames = new HashMap<>();
+        Map<Integer, StringBuilder> departmentTexts = new HashMap<>();
+        Map<Integer, StringBuilder> doctorTexts = new HashMap<>();
+
+        for (DoctorDto doctor : doctors) {
+            doctorsById.put(doctor.id(), doctor);
+            doctorsByDepartment.computeIfAbsent(doctor.departmentId(), k -> new ArrayList<>()).add(doctor.id());
+            departmentNames.put(doctor.departmentId(), doctor.departmentName());
+            appendText(departmentTexts, doctor.departmentId(), doctor.departmentName());
+            appendText(departmentTexts, doctor.departmentId(), doctor.expertise());
+            appendText(doctorTexts, doctor.id(), doctor.title());
+            appendText(doctorTexts, doctor.id(), doctor.expertise());
+        }
+
+        for (InquiryRepository.SymptomSample sample
+                : inquiryRepository.findRecentSymptoms(PageRequest.of(0, historySize))) {
+            DoctorDto doctor = doctorsById.get(sample.getDoctorId());
+            if (doctor != null) {
+                appendText(departmentTexts, doctor.departmentId(), sample.getSymptomDescription());
+                appendText(doctorTexts, doctor.id(), sample.getSymptomDescription());
+            }
+        }
+
+        model = new Model(
+                Bm25Index.build(departmentTexts),
+                Bm25Index.build(doctorTexts),
+                Map.copyOf(doctorsById),
+                Map.copyOf(doctorsByDepartment),
+                Map.copyOf(departmentNames));
+    }
+
+    private static void appendText(Map<Integer, StringBuilder> texts, Integer key, String text) {
+        if (text != null) {
+            texts.computeIfAbsent(key, k -> new StringBuilder()).append(text).append('\n');
+        }
+    }
+}
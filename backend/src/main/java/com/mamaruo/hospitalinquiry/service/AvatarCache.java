@@ -0,0 +1,174 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.mamaruo.hospitalinquiry.repository.DoctorProfileRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 医生头像的内存缓存：(doctorId, 尺寸) -> 照片字节、媒体类型与 ETag。
+ * <p>
+ * 按字节数（而非条目数）限制容量，超出时按最近最少使用淘汰；单张超过上限八分之一的照片不缓存。
+ * 命中时既不查医生档案也不读文件。医生档案变更（含更换照片）时按 doctorId 失效；
+ * 其他节点的修改不会通知到本节点，因此条目另有存活时间，过期后重新解析。
+ * 启动后在后台按医生档案中的照片路径（即 doctors.json 导入的数据）预热原图与缩略图。
+ */
+@Component
+public class AvatarCache {
+
+    private final DoctorProfileRepository doctorProfileRepository;
+    private final FileService fileService;
+    private final ImageVariantService imageVariantService;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "avatar-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 访问顺序的 LinkedHashMap 即 LRU，所有访问在 synchronized 内进行
+    private final LinkedHashMap<Key, CachedPhoto> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    @Value("${app.avatar.cache-max-bytes:33554432}")
+    private long maxBytes;
+
+    @Value("${app.avatar.cache-ttl-minutes:10}")
+    private long ttlMinutes;
+
+    public AvatarCache(DoctorProfileRepository doctorProfileRepository, FileService fileService,
+            ImageVariantService imageVariantService) {
+        this.doctorProfileRepository = doctorProfileRepository;
+        this.fileService = fileService;
+        this.imageVariantService = imageVariantService;
+    }
+
+    // size 为 null 表示原图
+    private record Key(Integer doctorId, ImageVariantService.Size size) {}
+
+    public record CachedPhoto(byte[] data, MediaType mediaType, String etag, long loadedAt) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(() -> {
+            try {
+                warmUp();
+            } catch (RuntimeException e) {
+                System.err.println("头像缓存预热失败: " + e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorService.DoctorChangedEvent event) {
+        evict(event.doctor().id());
+    }
+
+    /** 返回未过期的缓存条目，未命中返回 null */
+    public synchronized CachedPhoto get(Integer doctorId, ImageVariantService.Size size) {
+        Key key = new Key(doctorId, size);
+        CachedPhoto photo = entries.get(key);
+        if (photo != null && System.currentTimeMillis() - photo.loadedAt() > TimeUnit.MINUTES.toMillis(ttlMinutes)) {
+            remove(key);
+            return null;
+        }
+        return photo;
+    }
+
+    /**
+     * 解析照片并尝试放入缓存；照片过大时照常返回，只是不缓存。
+     */
+    public CachedPhoto load(Integer doctorId, String photoPath, ImageVariantService.Size size) {
+        FileService.DoctorPhoto photo = fileService.getDoctorPhoto(photoPath);
+        byte[] data;
+        try {
+            data = imageVariantService.resize(photo.resource().getContentAsByteArray(), photo.filename(), size);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("照片读取失败");
+        }
+        CachedPhoto cached = new CachedPhoto(data, FileService.determineMediaType(photo.filename()),
+                photoETag(photoPath, size), System.currentTimeMillis());
+        put(new Key(doctorId, size), cached);
+        return cached;
+    }
+
+    /** 失效该医生所有尺寸的照片 */
+    public synchronized void evict(Integer doctorId) {
+        for (ImageVariantService.Size size : ImageVariantService.Size.values()) {
+            remove(new Key(doctorId, size));
+        }
+        remove(new Key(doctorId, null));
+    }
+
+    /** ETag 取自照片路径与尺寸，更换照片即失效；与照片内容是否已缓存无关 */
+    public static String photoETag(String photoPath, ImageVariantService.Size size) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(photoPath.getBytes(StandardCharsets.UTF_8));
+            String etag = "p-" + HexFormat.of().formatHex(digest, 0, 8);
+            return size == null ? etag : etag + "@" + size.key();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized void put(Key key, CachedPhoto photo) {
+        if (photo.data().length > maxBytes / 8) {
+            return;
+        }
+        remove(key);
+        entries.put(key, photo);
+        totalBytes += photo.data().length;
+        var iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, CachedPhoto> eldest = iterator.next();
+            totalBytes -= eldest.getValue().data().length;
+            iterator.remove();
+        }
+    }
+
+    private void remove(Key key) {
+        CachedPhoto removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.data().length;
+        }
+    }
+
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        List<DoctorProfileRepository.PhotoPath> photos = doctorProfileRepository.findPhotoPaths();
+        int loaded = 0;
+        for (DoctorProfileRepository.PhotoPath photo : photos) {
+            try {
+                load(photo.getId(), photo.getPhotoPath(), null);
+                load(photo.getId(), photo.getPhotoPath(), ImageVariantService.Size.THUMB);
+                loaded++;
+            } catch (IllegalArgumentException e) {
+                // 照片缺失时首次请求会再解析一次，这里跳过即可
+            }
+        }
+        System.out.println("头像缓存预热完成，共 " + loaded + " 张，耗时 " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,170 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorDto;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 公开目录接口的预渲染快照。
+ * <p>
+ * 医生列表、按科室的医生列表和科室列表预先序列化为 JSON 字节（含 gzip 版本），
+ * 请求时直接写出，不再逐次经过 Jackson。目录变更后在后台单线程中重建，
+ * 多次变更会合并为一次重建；快照过期期间由调用方即时渲染兜底。
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final String AVAILABLE_DOCTORS = "doctors";
+    private static final String DEPARTMENTS = "departments";
+    private static final String DEPARTMENT_DOCTORS_PREFIX = "doctors/department/";
+
+    private final ObjectMapper objectMapper;
+    private final DoctorService doctorService;
+    private final DepartmentService departmentService;
+    private final CatalogVersionService catalogVersionService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    // 版本与快照整体替换，读取方不会看到版本和内容不一致的组合
+    private volatile SnapshotSet current = new SnapshotSet(-1, Map.of());
+
+    public CatalogSnapshotService(
+            ObjectMapper objectMapper,
+            DoctorService doctorService,
+            DepartmentService departmentService,
+            CatalogVersionService catalogVersionService) {
+        this.objectMapper = objectMapper;
+        this.doctorService = doctorService;
+        this.departmentService = departmentService;
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    /**
+     * 预渲染的响应体。gzip 为空表示该快照未预压缩（即时渲染的兜底结果）。
+     */
+    public record Snapshot(String etag, byte[] identity, byte[] gzip) {}
+
+    private record SnapshotSet(long version, Map<String, Snapshot> snapshots) {}
+
+    public Snapshot getAvailableDoctors() {
+        return get(AVAILABLE_DOCTORS, () -> doctorService.getAvailableDoctors());
+    }
+
+    public Snapshot getDoctorsByDepartment(Integer departmentId) {
+        return get(DEPARTMENT_DOCTORS_PREFIX + departmentId,
+                () -> doctorService.getDoctorsByDepartment(departmentId));
+    }
+
+    public Snapshot getDepartments() {
+        return get(DEPARTMENTS, () -> departmentService.getAllDepartments());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        scheduleRebuild();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogVersionService.CatalogChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Snapshot get(String key, Supplier<Object> loader) {
+        long version = catalogVersionService.getCatalogVersion();
+        SnapshotSet set = current;
+        if (set.version() == version) {
+            Snapshot snapshot = set.snapshots().get(key);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            // 快照是最新的但没有该键（例如没有可接诊医生的科室），结果必为空列表
+            if (key.startsWith(DEPARTMENT_DOCTORS_PREFIX)) {
+                return render(catalogVersionService.catalogETag(version), List.of(), false);
+            }
+        }
+        scheduleRebuild();
+        return render(catalogVersionService.catalogETag(version), loader.get(), false);
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    System.err.println("目录快照重建失败: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        // 先读版本再查库：即使期间又有变更，快照也只会被标记为更旧的版本，随后再次重建
+        long version = catalogVersionService.getCatalogVersion();
+        String etag = catalogVersionService.catalogETag(version);
+
+        List<DoctorDto> doctors = doctorService.getAvailableDoctors();
+        Map<Integer, List<DoctorDto>> byDepartment = new LinkedHashMap<>();
+        for (DoctorDto doctor : doctors) {
+            byDepartment.computeIfAbsent(doctor.departmentId(), k -> new ArrayList<>()).add(doctor);
+        }
+
+        Map<String, Snapshot> rebuilt = new HashMap<>();
+        rebuilt.put(AVAILABLE_DOCTORS, render(etag, doctors, true));
+        rebuilt.put(DEPARTMENTS, render(etag, departmentService.getAllDepartments(), true));
+        byDepartment.forEach((departmentId, list) ->
+                rebuilt.put(DEPARTMENT_DOCTORS_PREFIX + departmentId, render(etag, list, true)));
+
+        current = new SnapshotSet(version, Map.copyOf(rebuilt));
+    }
+
+    private Snapshot render(String etag, Object body, boolean compress) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(body);
+            return new Snapshot(etag, identity, compress ? gzip(identity) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
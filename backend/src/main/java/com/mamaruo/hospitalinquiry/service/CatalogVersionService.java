@@ -0,0 +1,87 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 数据版本戳 - 为条件 GET（ETag / 304）提供依据。
+ * <p>
+ * 医生、科室的任何变更都会递增目录版本；问诊等按用户划分的数据递增对应用户的版本。
+ * 版本号在事务提交后才递增，避免并发读取把旧数据与新版本号一起缓存到客户端。
+ * ETag 带有启动时间前缀，保证重启后不会与旧版本号撞车。
+ * 目录版本递增后发布 {@link CatalogChangedEvent}，供预渲染快照等缓存重建。
+ */
+@Service
+public class CatalogVersionService {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicLong userSequence = new AtomicLong();
+    // userId -> 最近一次变更时的全局序号
+    private final Map<Integer, Long> userVersions = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CatalogVersionService(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    public long getUserVersion(Integer userId) {
+        return userVersions.getOrDefault(userId, 0L);
+    }
+
+    /** 医生/科室目录的 ETag */
+    public String catalogETag() {
+        return catalogETag(catalogVersion.get());
+    }
+
+    public String catalogETag(long version) {
+        return epoch + "-" + version;
+    }
+
+    /** 按用户划分的列表 ETag；列表中内嵌了医生信息，因此同时包含目录版本 */
+    public String userETag(Integer userId) {
+        return epoch + "-" + catalogVersion.get() + "-" + getUserVersion(userId);
+    }
+
+    public void bumpCatalog() {
+        afterCommit(() -> eventPublisher.publishEvent(
+                new CatalogChangedEvent(catalogVersion.incrementAndGet())));
+    }
+
+    public void bumpUsers(Integer... userIds) {
+        afterCommit(() -> {
+            long version = userSequence.incrementAndGet();
+            for (Integer userId : userIds) {
+                if (userId != null) {
+                    userVersions.put(userId, version);
+                }
+            }
+        });
+    }
+
+    /** 医生/科室目录已变更 */
+    public record CatalogChangedEvent(long version) {}
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.mamaruo.hospitalinquiry.entity.dto.UploadInitRequest;
+import com.mamaruo.hospitalinquiry.entity.dto.UploadStatus;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 可断点续传的分片上传。
+ * <p>
+ * 初始化时声明文件大小与 SHA-256，服务端按固定分片大小切分；每个分片以定位写
+ * （FileChannel.write(buffer, position)）直接写入预分配的临时文件，分片可乱序、可重传。
+ * 全部到齐后完成上传：流式计算摘要并与声明值比对，一致才按内容寻址入库。
+ * 每个上传只占用一个固定大小的缓冲区，内存与文件大小无关。
+ * 会话保存在本节点内存中，超过存活时间未完成的会话连同临时文件一并清理。
+ * 初始化即按声明大小占用磁盘，因此限制每个用户同时进行的上传会话数。
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileService fileService;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chunked-upload-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.upload.chunk-size:1048576}")
+    private int chunkSize;
+
+    @Value("${app.upload.max-size:104857600}")
+    private long maxSize;
+
+    @Value("${app.upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Value("${app.upload.max-sessions-per-user:3}")
+    private int maxSessionsPerUser;
+
+    public ChunkedUploadService(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    private static final class UploadSession {
+        final String id;
+        final Integer ownerId;
+        final String filename;
+        final long size;
+        final String sha256;
+        final int chunkSize;
+        final int chunkCount;
+        final Path temp;
+        final BitSet received;  // 仅在 synchronized(this) 内访问
+        volatile long touchedAt = System.currentTimeMillis();
+        // 以下字段仅在 synchronized(this) 内访问：完成期间拒绝写入，写入期间拒绝完成；
+        // 过期清理跳过正在写入或完成的会话，清理后的会话拒绝一切操作
+        boolean completing;
+        int writers;
+        boolean expired;
+
+        UploadSession(String id, Integer ownerId, UploadInitRequest request, int chunkSize, Path temp) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.filename = request.filename();
+            this.size = request.size();
+            this.sha256 = request.sha256().toLowerCase();
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.temp = temp;
+            this.received = new BitSet(chunkCount);
+        }
+
+        long chunkLength(int index) {
+            return index == chunkCount - 1 ? size - (long) index * chunkSize : chunkSize;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        cleaner.scheduleWithFixedDelay(this::expireSessions, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    public UploadStatus init(Integer ownerId, UploadInitRequest request) throws IOException {
+        if (request.size() > maxSize) {
+            throw new IllegalArgumentException("文件过大，最大允许 " + (maxSize >> 20) + " MB");
+        }
+        Path temp = fileService.createTempFile();
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), ownerId, request, chunkSize, temp);
+        // 计数与登记放在同一把锁内，并发初始化不会越过上限
+        synchronized (sessions) {
+            long active = sessions.values().stream().filter(s -> s.ownerId.equals(ownerId)).count();
+            if (active >= maxSessionsPerUser) {
+                Files.deleteIfExists(temp);
+                throw new IllegalArgumentException("同时进行的上传过多，请先完成或取消已有上传");
+            }
+            sessions.put(session.id, session);
+        }
+        // 预分配到声明大小，分片按偏移写入
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(1), request.size() - 1);
+        } catch (IOException e) {
+            sessions.remove(session.id);
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return status(session);
+    }
+
+    public UploadStatus status(Integer ownerId, String uploadId) {
+        return status(session(ownerId, uploadId));
+    }
+
+    /**
+     * 写入一个分片。offset 必须落在分片边界上，长度必须等于该分片的长度；
+     * 同一分片重复上传会覆盖写入（断线重传时客户端无法确定上次是否写完）。
+     */
+    public UploadStatus writeChunk(Integer ownerId, String uploadId, long offset, InputStream body) throws IOException {
+        UploadSession session = session(ownerId, uploadId);
+        if (offset < 0 || offset >= session.size || offset % session.chunkSize != 0) {
+            throw new IllegalArgumentException("分片偏移量不合法");
+        }
+        int index = (int) (offset / session.chunkSize);
+        long expected = session.chunkLength(index);
+
+        synchronized (session) {
+            checkNotExpired(session);
+            if (session.completing) {
+                throw new IllegalArgumentException("上传正在完成中");
+            }
+            session.writers++;
+        }
+        long written = 0;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(session.temp, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = body.read(buffer.array(), 0, (int) Math.min(BUFFER_SIZE, expected - written + 1))) > 0) {
+                    if (written + read > expected) {
+                        throw new IllegalArgumentException("分片长度超出预期");
+                    }
+                    buffer.position(0).limit(read);
+                    while (buffer.hasRemaining()) {
+                        written += channel.write(buffer, offset + written);
+                    }
+                }
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("分片不完整，预期 " + expected + " 字节，实际 " + written + " 字节");
+            }
+        } finally {
+            synchronized (session) {
+                session.writers--;
+                // 重传中断的分片内容已不可信，需重新上传
+                session.received.set(index, written == expected);
+            }
+        }
+        session.touchedAt = System.currentTimeMillis();
+        return status(session);
+    }
+
+    /**
+     * 所有分片到齐后在 I/O 线程池上校验 SHA-256 并按内容寻址入库，完成时得到存储后的文件名。
+     * 校验失败时会话保留但清空已收分片，客户端查询进度后整体重传。
+     */
+    public CompletableFuture<String> complete(Integer ownerId, String uploadId) {
+        UploadSession session = session(ownerId, uploadId);
+        synchronized (session) {
+            checkNotExpired(session);
+            if (session.completing) {
+                throw new IllegalArgumentException("上传正在完成中");
+            }
+            if (session.writers > 0 || session.received.cardinality() != session.chunkCount) {
+                throw new IllegalArgumentException("仍有分片未上传");
+            }
+            session.completing = true;
+        }
+        return fileService.supplyIo("verify", () -> verifyAndCommit(session))
+                .whenComplete((filename, e) -> {
+                    synchronized (session) {
+                        session.completing = false;
+                    }
+                });
+    }
+
+    private String verifyAndCommit(UploadSession session) throws IOException {
+        String actual = sha256(session.temp);
+        if (!actual.equals(session.sha256)) {
+            synchronized (session) {
+                session.received.clear();
+            }
+            throw new IllegalArgumentException("文件校验失败，请重新上传");
+        }
+        String filename = fileService.commitTempFile(session.temp, actual, session.size, session.filename);
+        sessions.remove(session.id);
+        Files.deleteIfExists(session.temp);
+        return filename;
+    }
+
+    public void abort(Integer ownerId, String uploadId) throws IOException {
+        UploadSession session = session(ownerId, uploadId);
+        synchronized (session) {
+            if (session.completing) {
+                throw new IllegalArgumentException("上传正在完成中");
+            }
+        }
+        sessions.remove(session.id);
+        Files.deleteIfExists(session.temp);
+    }
+
+    private UploadSession session(Integer ownerId, String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.ownerId.equals(ownerId)) {
+            throw new IllegalArgumentException("上传会话不存在或已过期");
+        }
+        return session;
+    }
+
+    private static void checkNotExpired(UploadSession session) {
+        if (session.expired) {
+            throw new IllegalArgumentException("上传会话不存在或已过期");
+        }
+    }
+
+    private static UploadStatus status(UploadSession session) {
+        List<Integer> missing = new ArrayList<>();
+        long receivedBytes = 0;
+        synchronized (session) {
+            for (int i = 0; i < session.chunkCount; i++) {
+                if (session.received.get(i)) {
+                    receivedBytes += session.chunkLength(i);
+                } else {
+                    missing.add(i);
+                }
+            }
+        }
+        return new UploadStatus(session.id, session.filename, session.size, session.chunkSize, receivedBytes, missing);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // 由定时任务调用，包内可见以便测试直接触发
+    void expireSessions() {
+        long deadline = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(sessionTtlHours);
+        sessions.values().removeIf(session -> {
+            synchronized (session) {
+                if (session.touchedAt >= deadline || session.completing || session.writers > 0) {
+                    return false;
+                }
+                session.expired = true;
+            }
+            try {
+                Files.deleteIfExists(session.temp);
+            } catch (IOException e) {
+                System.err.println("清理过期上传失败: " + session.temp + " - " + e.getMessage());
+            }
+            return true;
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 最小化的 CSV 读写（RFC 4180）：逗号分隔，字段含逗号、引号或换行时用双引号包裹，
+ * 引号写作两个双引号。按记录逐条读写，不缓存整个文件。
+ * <p>
+ * 导出的文本字段若以 = + - @、制表符或回车开头，会被 Excel 等表格软件当作公式执行，
+ * 写出时在前面加单引号使其按文本显示；导入时用 {@link #stripFormulaGuard} 去掉。
+ */
+public final class CsvFormat {
+
+    /** UTF-8 BOM，写在导出文件开头，方便 Excel 正确识别中文 */
+    public static final char BOM = '\uFEFF';
+
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private CsvFormat() {}
+
+    /** 读取下一条记录，到达末尾时返回 null。传入的 Reader 应自带缓冲 */
+    public static List<String> readRecord(Reader reader) throws IOException {
+        int c = reader.read();
+        if (c == BOM) {
+            c = reader.read();
+        }
+        // 跳过空行
+        while (c == '\r' || c == '\n') {
+            c = reader.read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("CSV 格式错误：引号未闭合");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    public static void writeRecord(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] instanceof Number) {
+                writer.write(values[i].toString());  // 数值（含负数）原样写出
+            } else if (values[i] != null) {
+                writer.write(escape(guardFormula(values[i].toString())));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /** 去掉导出时为防公式注入添加的单引号前缀 */
+    public static String stripFormulaGuard(String value) {
+        if (value.length() > 1 && value.charAt(0) == '\'' && FORMULA_PREFIXES.indexOf(value.charAt(1)) >= 0) {
+            return value.substring(1);
+        }
+        return value;
+    }
+
+    private static String guardFormula(String value) {
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            return '\'' + value;
+        }
+        return value;
+    }
+
+    private static String escape(String value) {
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,90 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import com.mamaruo.hospitalinquiry.entity.dto.DashboardDto;
+import com.mamaruo.hospitalinquiry.metrics.ChatMetrics;
+import com.mamaruo.hospitalinquiry.metrics.InquiryQueueMetrics;
+import com.mamaruo.hospitalinquiry.websocket.DoctorPresenceRegistry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * 汇总本节点的运行指标，数据全部来自内存中的 Micrometer 计量器。
+ */
+@Service
+public class DashboardService {
+
+    private static final int MAX_ENDPOINTS = 20;
+
+    private final MeterRegistry meterRegistry;
+    private final ChatMetrics chatMetrics;
+    private final InquiryQueueMetrics inquiryQueueMetrics;
+    private final DoctorPresenceRegistry presenceRegistry;
+
+    public DashboardService(
+            MeterRegistry meterRegistry,
+            ChatMetrics chatMetrics,
+            InquiryQueueMetrics inquiryQueueMetrics,
+            DoctorPresenceRegistry presenceRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.chatMetrics = chatMetrics;
+        this.inquiryQueueMetrics = inquiryQueueMetrics;
+        this.presenceRegistry = presenceRegistry;
+    }
+
+    public DashboardDto getDashboard() {
+        return new DashboardDto(
+                chatMetrics.getActiveSessions(),
+                presenceRegistry.getOnlineCount(),
+                chatMetrics.getInboundRate(),
+                chatMetrics.getOutboundRate(),
+                chatMetrics.getInboundTotal(),
+                chatMetrics.getOutboundTotal(),
+                latency(chatMetrics.getSaveTimer()),
+                latency(chatMetrics.getDeliveryTimer()),
+                inquiryQueueMetrics.getPendingByDepartment(),
+                endpoints());
+    }
+
+    // 请求量最大的接口（按 方法 + URI 模板 + 状态码 区分）
+    private List<DashboardDto.EndpointStats> endpoints() {
+        return meterRegistry.find("http.server.requests").timers().stream()
+                .filter(timer -> timer.count() > 0)
+                .sorted(Comparator.comparingLong(Timer::count).reversed())
+                .limit(MAX_ENDPOINTS)
+                .map(timer -> new DashboardDto.EndpointStats(
+                        timer.getId().getTag("method"),
+                        timer.getId().getTag("uri"),
+                        timer.getId().getTag("status"),
+                        latency(timer)))
+                .toList();
+    }
+
+    private static DashboardDto.LatencyStats latency(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double p50 = 0, p95 = 0, p99 = 0;
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            double ms = value.value(TimeUnit.MILLISECONDS);
+            if (value.percentile() == 0.5) {
+                p50 = ms;
+            } else if (value.percentile() == 0.95) {
+                p95 = ms;
+            } else if (value.percentile() == 0.99) {
+                p99 = ms;
+            }
+        }
+        return new DashboardDto.LatencyStats(
+                snapshot.count(),
+                snapshot.mean(TimeUnit.MILLISECONDS),
+                snapshot.max(TimeUnit.MILLISECONDS),
+                p50, p95, p99);
+    }
+}
@@ -2,7 +2,12 @@ package com.mamaruo.hospitalinquiry.service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.ClassPathResource;
@@ -11,25 +16,36 @@ import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mamaruo.hospitalinquiry.entity.AppSetting;
 import com.mamaruo.hospitalinquiry.entity.Role;
 import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorImportRow;
+import com.mamaruo.hospitalinquiry.entity.dto.ImportResult;
+import com.mamaruo.hospitalinquiry.repository.AppSettingRepository;
 import com.mamaruo.hospitalinquiry.repository.UserRepository;
 
 /**
- * 数据初始化器 - 启动时从 doctors.json 导入医生数据，并创建管理员账号
+ * 数据初始化器 - 启动时从 doctors.json 导入医生数据，并创建管理员账号。
+ * <p>
+ * doctors.json 的 SHA-256 指纹记录在 app_settings 中，文件未变化时跳过导入。
  */
 @Component
 public class DataInitializer implements CommandLineRunner {
 
-    private final DoctorService doctorService;
+    private static final String DOCTORS_FINGERPRINT_KEY = "doctors.json.sha256";
+
+    private final DoctorImportService doctorImportService;
     private final UserRepository userRepository;
+    private final AppSettingRepository appSettingRepository;
     private final PasswordEncoder passwordEncoder;
     private final ObjectMapper objectMapper;
 
-    public DataInitializer(DoctorService doctorService, UserRepository userRepository,
+    public DataInitializer(DoctorImportService doctorImportService, UserRepository userRepository,
+                          AppSettingRepository appSettingRepository,
                           PasswordEncoder passwordEncoder, ObjectMapper objectMapper) {
-        this.doctorService = doctorService;
+        this.doctorImportService = doctorImportService;
         this.userRepository = userRepository;
+        this.appSettingRepository = appSettingRepository;
         this.passwordEncoder = passwordEncoder;
         this.objectMapper = objectMapper;
     }
@@ -61,48 +77,51 @@ public class DataInitializer implements CommandLineRunner {
     }
 
     private void loadDoctorsFromJson() {
+        byte[] content;
+        try (InputStream inputStream = new ClassPathResource("doctors.json").getInputStream()) {
+            content = inputStream.readAllBytes();
+        } catch (IOException e) {
+            System.out.println("无法读取 doctors.json 文件: " + e.getMessage());
+            return;
+        }
+
+        String fingerprint = sha256(content);
+        boolean unchanged = appSettingRepository.findById(DOCTORS_FINGERPRINT_KEY)
+                .map(setting -> fingerprint.equals(setting.getValue()))
+                .orElse(false);
+        if (unchanged) {
+            System.out.println("doctors.json 未变化，跳过医生数据导入");
+            return;
+        }
+
         try {
-            ClassPathResource resource = new ClassPathResource("doctors.json");
-            InputStream inputStream = resource.getInputStream();
-            
-            List<DoctorJsonData> doctors = objectMapper.readValue(
-                    inputStream, 
-                    new TypeReference<List<DoctorJsonData>>() {}
+            // 全局 SNAKE_CASE 命名策略下 photo_path 自动映射到 photoPath
+            List<DoctorImportRow> doctors = objectMapper.readValue(
+                    content,
+                    new TypeReference<List<DoctorImportRow>>() {}
             );
 
             System.out.println("开始导入医生数据，共 " + doctors.size() + " 条记录...");
-
-            for (DoctorJsonData doctor : doctors) {
-                try {
-                    doctorService.createDoctorFromJson(
-                            doctor.name(),
-                            doctor.department(),
-                            doctor.title(),
-                            doctor.expertise(),
-                            doctor.photoPath()
-                    );
-                    System.out.println("导入医生: " + doctor.name());
-                } catch (Exception e) {
-                    System.out.println("跳过医生 " + doctor.name() + ": " + e.getMessage());
-                }
+            Map<Integer, DoctorImportRow> rowsByLine = new LinkedHashMap<>();
+            for (int i = 0; i < doctors.size(); i++) {
+                rowsByLine.put(i + 1, doctors.get(i));
             }
-
-            System.out.println("医生数据导入完成！");
+            ImportResult result = doctorImportService.importBatch(rowsByLine, false);
+            appSettingRepository.save(new AppSetting(DOCTORS_FINGERPRINT_KEY, fingerprint));
+            System.out.println("医生数据导入完成！新增 " + result.created() + " 条，跳过 " + result.skipped() + " 条");
         } catch (IOException e) {
-            System.out.println("无法读取 doctors.json 文件: " + e.getMessage());
+            System.out.println("无法解析 doctors.json 文件: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // 整批在一个事务中，失败时全部回滚，下次启动重试
+            System.out.println("医生数据导入失败: " + e.getMessage());
         }
     }
 
-    // 用于解析 JSON 的内部记录类
-    private record DoctorJsonData(
-            String name,
-            String department,
-            String title,
-            String expertise,
-            String photo_path  // JSON 中使用下划线命名
-    ) {
-        public String photoPath() {
-            return photo_path;
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
-}
\ No newline at end of file
+}
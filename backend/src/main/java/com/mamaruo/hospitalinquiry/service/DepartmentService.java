@@ -3,6 +3,7 @@ package com.mamaruo.hospitalinquiry.service;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,11 +14,22 @@ import com.mamaruo.hospitalinquiry.repository.DepartmentRepository;
 @Service
 public class DepartmentService {
     private final DepartmentRepository departmentRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public DepartmentService(DepartmentRepository departmentRepository) {
+    public DepartmentService(DepartmentRepository departmentRepository,
+            CatalogVersionService catalogVersionService,
+            ApplicationEventPublisher eventPublisher) {
         this.departmentRepository = departmentRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.eventPublisher = eventPublisher;
     }
 
+    /** 科室名称可能已变更（内嵌科室名的检索索引据此刷新） */
+    public record DepartmentChangedEvent(Integer departmentId, String name) {}
+
+    // toDto 需要访问懒加载的 doctors 集合，后台线程调用时也要有会话
+    @Transactional(readOnly = true)
     public List<DepartmentDto> getAllDepartments() {
         return departmentRepository.findAll().stream()
                 .map(this::toDto)
@@ -37,6 +49,7 @@ public class DepartmentService {
         }
         Department dept = new Department(name);
         dept.setDescription(description);
+        catalogVersionService.bumpCatalog();
         return toDto(departmentRepository.save(dept));
     }
 
@@ -54,6 +67,8 @@ public class DepartmentService {
         
         dept.setName(name);
         dept.setDescription(description);
+        catalogVersionService.bumpCatalog();
+        eventPublisher.publishEvent(new DepartmentChangedEvent(id, name));
         return toDto(departmentRepository.save(dept));
     }
 
@@ -65,12 +80,14 @@ public class DepartmentService {
             throw new IllegalArgumentException("该科室下还有医生，无法删除");
         }
         departmentRepository.delete(dept);
+        catalogVersionService.bumpCatalog();
     }
 
     public Department getOrCreateDepartment(String name) {
         return departmentRepository.findByName(name)
                 .orElseGet(() -> {
                     Department dept = new Department(name);
+                    catalogVersionService.bumpCatalog();
                     return departmentRepository.save(dept);
                 });
     }
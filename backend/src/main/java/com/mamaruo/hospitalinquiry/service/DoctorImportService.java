@@ -0,0 +1,237 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.mamaruo.hospitalinquiry.entity.Department;
+import com.mamaruo.hospitalinquiry.entity.DoctorProfile;
+import com.mamaruo.hospitalinquiry.entity.Role;
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorImportRow;
+import com.mamaruo.hospitalinquiry.entity.dto.ImportResult;
+import com.mamaruo.hospitalinquiry.repository.DepartmentRepository;
+import com.mamaruo.hospitalinquiry.repository.DoctorProfileRepository;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+/**
+ * 医生批量导入。
+ * <p>
+ * 每批在一个事务内完成：按手机号/姓名批量查出已有医生、科室与占用的手机号，
+ * 只写入新增与变化的部分；默认密码只做一次 BCrypt；科室、用户、医生档案各用一次 saveAll 写入。
+ * 有手机号的行按手机号匹配已有医生，没有的按姓名匹配。
+ */
+@Service
+public class DoctorImportService {
+
+    private static final String DEFAULT_PASSWORD = "123456";
+
+    private final DepartmentRepository departmentRepository;
+    private final DoctorProfileRepository doctorProfileRepository;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final DoctorService doctorService;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RegisteredUserFilter registeredUserFilter;
+
+    // 默认密码的哈希，首次需要时计算，之后所有新建医生共用
+    private volatile String defaultPasswordHash;
+
+    public DoctorImportService(
+            DepartmentRepository departmentRepository,
+            DoctorProfileRepository doctorProfileRepository,
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            DoctorService doctorService,
+            CatalogVersionService catalogVersionService,
+            ApplicationEventPublisher eventPublisher,
+            RegisteredUserFilter registeredUserFilter) {
+        this.departmentRepository = departmentRepository;
+        this.doctorProfileRepository = doctorProfileRepository;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.doctorService = doctorService;
+        this.catalogVersionService = catalogVersionService;
+        this.eventPublisher = eventPublisher;
+        this.registeredUserFilter = registeredUserFilter;
+    }
+
+    /**
+     * 导入一批已校验的行。
+     *
+     * @param rowsByLine     行号 -> 数据，按行号顺序
+     * @param updateExisting 已存在的医生是否按导入数据更新；否则跳过
+     */
+    @Transactional
+    public ImportResult importBatch(Map<Integer, DoctorImportRow> rowsByLine, boolean updateExisting) {
+        List<ImportResult.RowError> errors = new ArrayList<>();
+
+        // 批内去重：同一手机号（无手机号时同一姓名）只保留第一次出现
+        Map<String, Integer> firstLineByKey = new HashMap<>();
+        Map<Integer, DoctorImportRow> rows = new LinkedHashMap<>();
+        rowsByLine.forEach((line, row) -> {
+            Integer first = firstLineByKey.putIfAbsent(matchKey(row), line);
+            if (first != null) {
+                errors.add(new ImportResult.RowError(line, "与第 " + first + " 行重复"));
+            } else {
+                rows.put(line, row);
+            }
+        });
+
+        // 一次查询匹配已有医生
+        Set<String> mobiles = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        rows.values().forEach(row -> {
+            if (row.mobile() != null) {
+                mobiles.add(row.mobile());
+            } else {
+                names.add(row.name());
+            }
+        });
+        Map<String, DoctorProfile> existing = new HashMap<>();
+        if (!mobiles.isEmpty()) {
+            doctorProfileRepository.findWithUserByMobileIn(mobiles)
+                    .forEach(d -> existing.put(d.getUser().getMobile(), d));
+        }
+        if (!names.isEmpty()) {
+            doctorProfileRepository.findWithUserByNameIn(names)
+                    .forEach(d -> existing.putIfAbsent("name:" + d.getUser().getName(), d));
+        }
+
+        Map<Integer, DoctorImportRow> toCreate = new LinkedHashMap<>();
+        Map<DoctorProfile, DoctorImportRow> toUpdate = new LinkedHashMap<>();
+        int skipped = 0;
+        for (Map.Entry<Integer, DoctorImportRow> entry : rows.entrySet()) {
+            DoctorProfile profile = existing.get(matchKey(entry.getValue()));
+            if (profile == null) {
+                toCreate.put(entry.getKey(), entry.getValue());
+            } else if (updateExisting) {
+                toUpdate.put(profile, entry.getValue());
+            } else {
+                skipped++;
+            }
+        }
+
+        // 指定的手机号被非医生账号占用时报错；生成的手机号冲突时改用 139 号段
+        Map<Integer, String> newMobiles = new HashMap<>();
+        toCreate.forEach((line, row) -> newMobiles.put(line,
+                row.mobile() != null ? row.mobile() : generateMobile("138", row.name())));
+        Set<String> taken = new HashSet<>();
+        if (!newMobiles.isEmpty()) {
+            userRepository.findByMobileIn(newMobiles.values()).forEach(u -> taken.add(u.getMobile()));
+        }
+        toCreate.entrySet().removeIf(entry -> {
+            if (entry.getValue().mobile() != null && taken.contains(entry.getValue().mobile())) {
+                errors.add(new ImportResult.RowError(entry.getKey(), "手机号已被其他账号占用"));
+                return true;
+            }
+            return false;
+        });
+
+        Map<String, Department> departments = resolveDepartments(toCreate.values(), toUpdate.values());
+
+        List<User> users = new ArrayList<>(toCreate.size());
+        List<DoctorProfile> profiles = new ArrayList<>(toCreate.size() + toUpdate.size());
+        for (Map.Entry<Integer, DoctorImportRow> entry : toCreate.entrySet()) {
+            DoctorImportRow row = entry.getValue();
+            String mobile = newMobiles.get(entry.getKey());
+            for (int attempt = 1; row.mobile() == null && taken.contains(mobile); attempt++) {
+                mobile = generateMobile("139", row.name() + "#" + attempt);
+                if (userRepository.existsByMobile(mobile)) {
+                    taken.add(mobile);
+                }
+            }
+            taken.add(mobile);
+
+            User user = new User();
+            user.setMobile(mobile);
+            user.setPassword(defaultPasswordHash());
+            user.setName(row.name());
+            user.setRole(Role.DOCTOR);
+            users.add(user);
+
+            DoctorProfile profile = new DoctorProfile();
+            profile.setUser(user);
+            profile.setAvailable(true);
+            apply(profile, row, departments);
+            profiles.add(profile);
+        }
+        toUpdate.forEach((profile, row) -> {
+            apply(profile, row, departments);
+            profiles.add(profile);
+        });
+
+        userRepository.saveAll(users).forEach(registeredUserFilter::add);
+        doctorProfileRepository.saveAll(profiles);
+
+        if (!profiles.isEmpty()) {
+            catalogVersionService.bumpCatalog();
+            profiles.forEach(profile ->
+                    eventPublisher.publishEvent(new DoctorService.DoctorChangedEvent(doctorService.toDto(profile))));
+        }
+        errors.sort((a, b) -> Integer.compare(a.line(), b.line()));
+        return new ImportResult(users.size(), toUpdate.size(), skipped, errors.size(), errors);
+    }
+
+    // 一次查询已有科室，缺少的一次写入
+    private Map<String, Department> resolveDepartments(
+            Iterable<DoctorImportRow> created, Iterable<DoctorImportRow> updated) {
+        Set<String> departmentNames = new LinkedHashSet<>();
+        created.forEach(row -> departmentNames.add(row.department()));
+        updated.forEach(row -> departmentNames.add(row.department()));
+        Map<String, Department> departments = new HashMap<>();
+        if (departmentNames.isEmpty()) {
+            return departments;
+        }
+        departmentRepository.findByNameIn(departmentNames).forEach(d -> departments.put(d.getName(), d));
+        List<Department> newDepartments = departmentNames.stream()
+                .filter(name -> !departments.containsKey(name))
+                .map(Department::new)
+                .toList();
+        departmentRepository.saveAll(newDepartments).forEach(d -> departments.put(d.getName(), d));
+        return departments;
+    }
+
+    private static void apply(DoctorProfile profile, DoctorImportRow row, Map<String, Department> departments) {
+        profile.setDepartment(departments.get(row.department()));
+        profile.setTitle(row.title());
+        if (row.expertise() != null) {
+            profile.setExpertise(row.expertise());
+        }
+        if (row.photoPath() != null) {
+            profile.setPhotoPath(row.photoPath());
+        }
+        if (row.available() != null) {
+            profile.setAvailable(row.available());
+        }
+    }
+
+    private String defaultPasswordHash() {
+        String hash = defaultPasswordHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(DEFAULT_PASSWORD);
+            defaultPasswordHash = hash;
+        }
+        return hash;
+    }
+
+    private static String matchKey(DoctorImportRow row) {
+        return row.mobile() != null ? row.mobile() : "name:" + row.name();
+    }
+
+    // 以名字哈希作为后缀生成手机号，同名同号段结果固定
+    private static String generateMobile(String prefix, String seed) {
+        return prefix + String.format("%08d", Math.abs(seed.hashCode() % 100000000));
+    }
+}
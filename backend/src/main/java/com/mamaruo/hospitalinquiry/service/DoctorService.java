@@ -3,6 +3,8 @@ package com.mamaruo.hospitalinquiry.service;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,18 +25,30 @@ public class DoctorService {
     private final DepartmentRepository departmentRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RegisteredUserFilter registeredUserFilter;
 
     public DoctorService(
             DoctorProfileRepository doctorProfileRepository,
             DepartmentRepository departmentRepository,
             UserRepository userRepository,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder,
+            CatalogVersionService catalogVersionService,
+            ApplicationEventPublisher eventPublisher,
+            RegisteredUserFilter registeredUserFilter) {
         this.doctorProfileRepository = doctorProfileRepository;
         this.departmentRepository = departmentRepository;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.catalogVersionService = catalogVersionService;
+        this.eventPublisher = eventPublisher;
+        this.registeredUserFilter = registeredUserFilter;
     }
 
+    /** 医生档案已创建或修改（检索索引等据此增量更新） */
+    public record DoctorChangedEvent(DoctorDto doctor) {}
+
     public List<DoctorDto> getAllDoctors() {
         return doctorProfileRepository.findAll().stream()
                 .map(this::toDto)
@@ -67,8 +81,9 @@ public class DoctorService {
 
     @Transactional
     public DoctorDto createDoctor(CreateDoctorRequest request) {
-        // 检查手机号是否已存在
-        if (userRepository.findByMobile(request.mobile()).isPresent()) {
+        // 检查手机号是否已存在（布隆过滤器预检，唯一约束兜底）
+        if (registeredUserFilter.mightContainMobile(request.mobile())
+                && userRepository.existsByMobile(request.mobile())) {
             throw new IllegalArgumentException("该手机号已被注册");
         }
 
@@ -81,7 +96,12 @@ public class DoctorService {
         user.setPassword(passwordEncoder.encode(request.password()));
         user.setName(request.name());
         user.setRole(Role.DOCTOR);
-        user = userRepository.save(user);
+        try {
+            user = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw RegisteredUserFilter.duplicateUser(e);
+        }
+        registeredUserFilter.add(user);
 
         // 创建医生档案
         DoctorProfile profile = new DoctorProfile();
@@ -91,53 +111,7 @@ public class DoctorService {
         profile.setExpertise(request.expertise());
         profile.setAvailable(true);
 
-        return toDto(doctorProfileRepository.save(profile));
-    }
-
-    @Transactional
-    public DoctorDto createDoctorFromJson(String name, String departmentName, String title, 
-            String expertise, String photoPath) {
-        // 获取或创建科室
-        Department dept = departmentRepository.findByName(departmentName)
-                .orElseGet(() -> {
-                    Department newDept = new Department(departmentName);
-                    return departmentRepository.save(newDept);
-                });
-
-        // 生成手机号（使用名字哈希值作为后缀，确保唯一性）
-        String mobile = "138" + String.format("%08d", Math.abs(name.hashCode()) % 100000000);
-        
-        // 检查手机号是否已存在，如果存在则跳过
-        if (userRepository.findByMobile(mobile).isPresent()) {
-            DoctorProfile existing = doctorProfileRepository.findAll().stream()
-                    .filter(d -> d.getUser().getName().equals(name))
-                    .findFirst()
-                    .orElse(null);
-            if (existing != null) {
-                return toDto(existing);
-            }
-            // 如果手机号重复但不是同一个医生，则修改手机号
-            mobile = "139" + String.format("%08d", Math.abs((name + System.currentTimeMillis()).hashCode()) % 100000000);
-        }
-
-        // 创建用户账号
-        User user = new User();
-        user.setMobile(mobile);
-        user.setPassword(passwordEncoder.encode("123456")); // 默认密码
-        user.setName(name);
-        user.setRole(Role.DOCTOR);
-        user = userRepository.save(user);
-
-        // 创建医生档案
-        DoctorProfile profile = new DoctorProfile();
-        profile.setUser(user);
-        profile.setDepartment(dept);
-        profile.setTitle(title);
-        profile.setExpertise(expertise);
-        profile.setPhotoPath(photoPath);
-        profile.setAvailable(true);
-
-        return toDto(doctorProfileRepository.save(profile));
+        return saved(profile);
     }
 
     @Transactional
@@ -161,7 +135,14 @@ public class DoctorService {
             profile.setAvailable(available);
         }
 
-        return toDto(doctorProfileRepository.save(profile));
+        return saved(profile);
+    }
+
+    private DoctorDto saved(DoctorProfile profile) {
+        DoctorDto dto = toDto(doctorProfileRepository.save(profile));
+        catalogVersionService.bumpCatalog();
+        eventPublisher.publishEvent(new DoctorChangedEvent(dto));
+        return dto;
     }
 
     public DoctorDto toDto(DoctorProfile profile) {
@@ -175,7 +156,8 @@ public class DoctorService {
                 profile.getTitle(),
                 profile.getExpertise(),
                 profile.getPhotoPath() != null ? "/api/files/" + profile.getId() + "/photo" : null,
-                profile.getAvailable()
+                profile.getAvailable(),
+                null  // 在线状态不进入目录缓存，客户端通过 /public/presence 批量查询
         );
     }
 }
@@ -0,0 +1,217 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorExportRow;
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorImportRow;
+import com.mamaruo.hospitalinquiry.entity.dto.ImportResult;
+import com.mamaruo.hospitalinquiry.repository.DoctorProfileRepository;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * 医生数据的流式导入/导出。
+ * <p>
+ * 导入边解析边校验，每攒满一批交给 {@link DoctorImportService} 在独立事务中写入，
+ * 内存占用与文件大小无关；某一批写入失败只影响该批的行。
+ * 导出复用 {@link ExportService}，列与导入格式一致。
+ */
+@Service
+public class DoctorTransferService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 200;
+
+    private final DoctorImportService doctorImportService;
+    private final DoctorProfileRepository doctorProfileRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ExportService exportService;
+
+    public DoctorTransferService(
+            DoctorImportService doctorImportService,
+            DoctorProfileRepository doctorProfileRepository,
+            ObjectMapper objectMapper,
+            Validator validator,
+            ExportService exportService) {
+        this.doctorImportService = doctorImportService;
+        this.doctorProfileRepository = doctorProfileRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.exportService = exportService;
+    }
+
+    public ImportResult importCsv(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> header = CsvFormat.readRecord(reader);
+        if (header == null) {
+            throw new IllegalArgumentException("CSV 文件为空");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(), i);
+        }
+        for (String required : List.of("name", "department", "title")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV 缺少列: " + required);
+            }
+        }
+
+        Accumulator accumulator = new Accumulator();
+        int line = 1;
+        List<String> record;
+        while ((record = CsvFormat.readRecord(reader)) != null) {
+            line++;
+            String available = column(record, columns, "available");
+            if (available != null && !available.equalsIgnoreCase("true") && !available.equalsIgnoreCase("false")) {
+                accumulator.error(line, "available 只能为 true 或 false");
+                continue;
+            }
+            accumulator.add(line, new DoctorImportRow(
+                    column(record, columns, "name"),
+                    column(record, columns, "mobile"),
+                    column(record, columns, "department"),
+                    column(record, columns, "title"),
+                    column(record, columns, "expertise"),
+                    column(record, columns, "photo_path"),
+                    available != null ? Boolean.valueOf(available) : null));
+        }
+        return accumulator.finish();
+    }
+
+    public ImportResult importJson(InputStream input) throws IOException {
+        Accumulator accumulator = new Accumulator();
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON 必须是医生对象数组");
+            }
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                index++;
+                // 先读成树再转换，单条类型错误不会打乱解析位置
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    accumulator.add(index, normalize(objectMapper.treeToValue(node, DoctorImportRow.class)));
+                } catch (JsonProcessingException e) {
+                    accumulator.error(index, "字段格式错误: " + e.getOriginalMessage());
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON 格式错误: " + e.getOriginalMessage());
+        }
+        return accumulator.finish();
+    }
+
+    public void exportCsv(OutputStream output) throws IOException {
+        exportService.export(output, ExportService.Format.CSV, false,
+                DoctorExportRow.class, doctorProfileRepository::streamExportRows);
+    }
+
+    public void exportJson(OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(output)) {
+            generator.writeStartArray();
+            // 逐行写入时不逐行 flush，由底层缓冲决定
+            ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            exportService.forEach(doctorProfileRepository::streamExportRows,
+                    row -> rowWriter.writeValue(generator, row));
+            generator.writeEndArray();
+        }
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = CsvFormat.stripFormulaGuard(record.get(index)).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static DoctorImportRow normalize(DoctorImportRow row) {
+        return new DoctorImportRow(trim(row.name()), trim(row.mobile()), trim(row.department()),
+                trim(row.title()), trim(row.expertise()), trim(row.photoPath()), row.available());
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /** 校验、分批写入并汇总结果 */
+    private class Accumulator {
+        private final Map<Integer, DoctorImportRow> batch = new LinkedHashMap<>();
+        private final List<ImportResult.RowError> errors = new ArrayList<>();
+        private int created;
+        private int updated;
+        private int skipped;
+        private int failed;
+
+        void add(int line, DoctorImportRow row) {
+            Set<ConstraintViolation<DoctorImportRow>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                error(line, violations.iterator().next().getMessage());
+                return;
+            }
+            batch.put(line, row);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void error(int line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportResult.RowError(line, message));
+            }
+        }
+
+        ImportResult finish() {
+            flush();
+            errors.sort((a, b) -> Integer.compare(a.line(), b.line()));
+            return new ImportResult(created, updated, skipped, failed, errors);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                ImportResult result = doctorImportService.importBatch(batch, true);
+                created += result.created();
+                updated += result.updated();
+                skipped += result.skipped();
+                result.errors().forEach(e -> error(e.line(), e.message()));
+            } catch (RuntimeException e) {
+                // 该批已整体回滚，逐行记为失败
+                System.err.println("医生批量导入写入失败: " + e.getMessage());
+                batch.keySet().forEach(line -> error(line, "写入失败，本批已回滚"));
+            }
+            batch.clear();
+        }
+    }
+}
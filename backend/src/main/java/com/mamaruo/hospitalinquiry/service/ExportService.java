@@ -0,0 +1,159 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 流式导出：在只读事务中逐行读取仓库返回的 Stream，直接写入输出流（可选 gzip）。
+ * <p>
+ * 行类型为 record，CSV 表头取 record 组件名的下划线形式，与 NDJSON 字段名一致。
+ * 查询应返回构造器投影并设置 fetch size，这样数据库游标、持久化上下文和写出缓冲
+ * 都不随数据量增长。
+ */
+@Service
+public class ExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        CSV("csv", "text/csv;charset=UTF-8"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("不支持的导出格式: " + value);
+        }
+    }
+
+    /** 逐行写出的回调，允许抛出 IOException */
+    public interface RowWriter<T> {
+        void write(T row) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ExportService(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public <T extends Record> void export(OutputStream output, Format format, boolean gzip,
+            Class<T> type, Supplier<Stream<T>> rows) throws IOException {
+        OutputStream target = gzip
+                ? new GZIPOutputStream(output, BUFFER_SIZE)
+                : new BufferedOutputStream(output, BUFFER_SIZE);
+        RecordComponent[] components = type.getRecordComponents();
+        if (format == Format.CSV) {
+            writeCsv(target, components, rows);
+        } else {
+            writeNdjson(target, rows);
+        }
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        target.flush();
+    }
+
+    /** 在只读事务中遍历流，结束或出错时关闭流（释放数据库游标） */
+    public <T> void forEach(Supplier<Stream<T>> rows, RowWriter<T> writer) throws IOException {
+        IOException failure = readOnlyTransaction.execute(status -> {
+            try (Stream<T> stream = rows.get()) {
+                for (T row : (Iterable<T>) stream::iterator) {
+                    writer.write(row);
+                }
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private <T extends Record> void writeCsv(OutputStream output, RecordComponent[] components,
+            Supplier<Stream<T>> rows) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        writer.write(CsvFormat.BOM);
+        Object[] header = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            header[i] = PropertyNamingStrategies.SnakeCaseStrategy.INSTANCE.translate(components[i].getName());
+        }
+        CsvFormat.writeRecord(writer, header);
+
+        Method[] accessors = new Method[components.length];
+        for (int i = 0; i < components.length; i++) {
+            accessors[i] = components[i].getAccessor();
+        }
+        Object[] values = new Object[components.length];
+        forEach(rows, row -> {
+            for (int i = 0; i < accessors.length; i++) {
+                values[i] = read(accessors[i], row);
+            }
+            CsvFormat.writeRecord(writer, values);
+        });
+        writer.flush();
+    }
+
+    private <T> void writeNdjson(OutputStream output, Supplier<Stream<T>> rows) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);  // 行之间只用换行分隔
+        forEach(rows, row -> {
+            rowWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        });
+        generator.close();
+    }
+
+    private static Object read(Method accessor, Object row) {
+        try {
+            return accessor.invoke(row);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,95 +2,422 @@ package com.mamaruo.hospitalinquiry.service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.mamaruo.hospitalinquiry.entity.FileLink;
+import com.mamaruo.hospitalinquiry.ratelimit.TooManyRequestsException;
+import com.mamaruo.hospitalinquiry.repository.FileLinkRepository;
+import com.mamaruo.hospitalinquiry.repository.StoredFileRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 上传文件存储。
+ * <p>
+ * 文件按内容寻址：写入时边流式落盘边计算 SHA-256，存储文件名为摘要加扩展名，相同内容只保存一份，
+ * 由 stored_files 表记录引用数。摘要文件名不对外提供：每次上传另行生成随机的公开名（UUID 加扩展名），
+ * 经 file_links 表映射到存储文件，读取时只接受公开名，外部无法凭摘要探测文件是否存在。
+ * 早期以 UUID 命名的文件没有映射记录，公开名即存储文件名，仍按原样读取。
+ * <p>
+ * 目录按文件名前两级十六进制前缀分片（ab/cd/abcd...），单个目录的文件数保持在可控范围；
+ * 分片前上传的文件仍在根目录，读取时先查分片目录再回退到根目录，可由后台迁移逐步搬入分片。
+ * 落盘、校验等文件写操作在专用 I/O 线程池上执行，慢盘不会占住请求线程。
+ */
 @Service
 public class FileService {
 
     private static final String DEFAULT_AVATAR = "default.svg";
+    private static final String TEMP_DIR = ".tmp";
+    // 公开文件名（UUID，可带扩展名）：新上传的随机名或早期 saveFile 生成的文件名
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.[A-Za-z0-9]{1,10})?");
+    // 内容寻址的存储文件名及其变体，只在服务端使用
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}(@[a-z]+)?(\\.[A-Za-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+    // 可分片的文件名：不可变文件及其缩放变体（stem@size.ext），分片取摘要前四位
+    private static final Pattern SHARDABLE_NAME = Pattern.compile(
+            "(([0-9a-f]{2})([0-9a-f]{2})[0-9a-f]{60}|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})"
+            + "(@[a-z]+)?(\\.[A-Za-z0-9]{1,10})?");
+
+    private final StoredFileRepository storedFileRepository;
+    private final FileLinkRepository fileLinkRepository;
+    private final ThreadPoolExecutor ioExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Counter ioRejected;
 
     @Value("${app.upload.dir:C:/hospital-uploads}")
     private String uploadDir;
 
+    public FileService(
+            StoredFileRepository storedFileRepository,
+            FileLinkRepository fileLinkRepository,
+            @Value("${app.upload.io-threads:4}") int ioThreads,
+            @Value("${app.upload.io-queue:256}") int ioQueue,
+            MeterRegistry meterRegistry) {
+        this.storedFileRepository = storedFileRepository;
+        this.fileLinkRepository = fileLinkRepository;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger counter = new AtomicInteger();
+        this.ioExecutor = new ThreadPoolExecutor(ioThreads, ioThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ioQueue), r -> {
+                    Thread thread = new Thread(r, "file-io-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.ioRejected = Counter.builder("files.io.rejected")
+                .description("因 I/O 队列已满而拒绝的文件操作数")
+                .register(meterRegistry);
+        Gauge.builder("files.io.queue", ioExecutor, e -> e.getQueue().size())
+                .description("等待执行的文件 I/O 任务数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+
+    /** 可抛出 IOException 的文件操作 */
+    @FunctionalInterface
+    public interface IoTask<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * 在 I/O 线程池上执行文件操作，并按 operation 记录耗时（files.io，不含排队）。
+     * IOException 以 UncheckedIOException 包装后使 future 异常完成；等待队列已满时不再排队，
+     * future 直接以 {@link TooManyRequestsException}（429）异常完成。
+     */
+    public <T> CompletableFuture<T> supplyIo(String operation, IoTask<T> task) {
+        Timer timer = Timer.builder("files.io")
+                .tag("operation", operation)
+                .description("文件 I/O 耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                try {
+                    return task.call();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    sample.stop(timer);
+                }
+            }, ioExecutor);
+        } catch (RejectedExecutionException e) {
+            ioRejected.increment();
+            return CompletableFuture.failedFuture(new TooManyRequestsException("服务繁忙，请稍后再试", 1));
+        }
+    }
+
+    public CompletableFuture<String> saveFileAsync(MultipartFile file) {
+        return supplyIo("store", () -> saveFile(file));
+    }
+
     public String saveFile(MultipartFile file) throws IOException {
-        // 确保上传目录存在
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename());
         }
+    }
 
-        // 生成唯一文件名
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+    /**
+     * 边写入临时文件边计算 SHA-256，再按内容寻址存储并增加引用，返回公开文件名。
+     */
+    public String store(InputStream in, String originalFilename) throws IOException {
+        Path temp = createTempFile();
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = in.transferTo(out);
+            }
+            return commitTempFile(temp, HexFormat.of().formatHex(digest.digest()), size, originalFilename);
+        } finally {
+            Files.deleteIfExists(temp);
         }
-        String newFilename = UUID.randomUUID().toString() + extension;
+    }
 
-        // 保存文件
-        Path filePath = uploadPath.resolve(newFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * 是否为内容不变的公开文件名（随机公开名或早期 UUID 命名）。
+     * 这类文件写入后内容不再变化，适合长期缓存。
+     */
+    public static boolean isImmutableName(String filename) {
+        return IMMUTABLE_NAME.matcher(filename).matches();
+    }
 
-        return newFilename;
+    /** 不可变文件的标识（去掉扩展名的公开文件名），用作 ETag */
+    public static String contentTag(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0 ? filename : filename.substring(0, dot);
     }
 
-    public byte[] getFile(String filename) throws IOException {
-        Path filePath = Paths.get(uploadDir).resolve(filename);
-        if (!Files.exists(filePath)) {
+    /**
+     * 解析公开文件名对应的存储路径，不读取内容，由调用方流式发送。
+     * 文件名只能是单层文件名，拒绝 ../ 等越界路径与摘要文件名；先查分片目录，再回退到根目录。
+     */
+    public Path resolveFile(String filename) {
+        Path filePath = locate(storedName(filename));
+        if (filePath == null) {
             throw new IllegalArgumentException("文件不存在");
         }
-        return Files.readAllBytes(filePath);
+        return filePath;
     }
 
     /**
      * 医生头像及其实际生效的文件名（用于判定 Content-Type）。
      */
-    public record DoctorPhoto(byte[] data, String filename) {}
+    public record DoctorPhoto(Resource resource, String filename) {}
 
     public DoctorPhoto getDoctorPhoto(String photoPath) {
         if (photoPath == null || photoPath.isEmpty()) {
             throw new IllegalArgumentException("照片路径为空");
         }
-        Path filePath = Paths.get(photoPath);
-        if (filePath.isAbsolute() && Files.exists(filePath)) {
-            try {
-                return new DoctorPhoto(Files.readAllBytes(filePath), filePath.getFileName().toString());
-            } catch (IOException e) {
-                throw new IllegalArgumentException("照片读取失败");
+        // 只取文件名部分（早期数据中可能是绝对路径），且只在上传目录与打包头像中解析，不读取任意路径
+        String filename = photoPath.substring(Math.max(photoPath.lastIndexOf('/'), photoPath.lastIndexOf('\\')) + 1);
+        if (isImmutableName(filename)) {
+            Path uploaded = locate(storedName(filename));
+            if (uploaded != null) {
+                return new DoctorPhoto(new FileSystemResource(uploaded), filename);
             }
         }
-        // 相对文件名（或换机器后失效的绝对路径）从打包资源中按文件名解析
-        String filename = filePath.getFileName().toString();
-        byte[] bundled = readBundledAvatar(filename);
-        if (bundled != null) {
+        Resource bundled = new ClassPathResource("static/avatars/" + filename);
+        if (!filename.startsWith(".") && bundled.exists()) {
             return new DoctorPhoto(bundled, filename);
         }
-        byte[] fallback = readBundledAvatar(DEFAULT_AVATAR);
-        if (fallback != null) {
+        Resource fallback = new ClassPathResource("static/avatars/" + DEFAULT_AVATAR);
+        if (fallback.exists()) {
             return new DoctorPhoto(fallback, DEFAULT_AVATAR);
         }
         throw new IllegalArgumentException("照片不存在");
     }
 
-    private byte[] readBundledAvatar(String filename) {
-        try (InputStream in = new ClassPathResource("static/avatars/" + filename).getInputStream()) {
-            return in.readAllBytes();
-        } catch (IOException e) {
-            return null;
+    public static MediaType determineMediaType(String filename) {
+        String lower = filename.toLowerCase();
+        if (lower.endsWith(".png")) {
+            return MediaType.IMAGE_PNG;
+        } else if (lower.endsWith(".gif")) {
+            return MediaType.IMAGE_GIF;
+        } else if (lower.endsWith(".webp")) {
+            return MediaType.valueOf("image/webp");
+        } else if (lower.endsWith(".svg")) {
+            return MediaType.valueOf("image/svg+xml");
+        }
+        return MediaType.IMAGE_JPEG;
+    }
+
+    /**
+     * 把已算好摘要的临时文件按内容寻址入库并增加引用，再登记一个随机公开名并返回；临时文件由调用方清理。
+     * 并发写入同一内容时可能各自落盘一次，原子改名覆盖的是相同内容，不需要加锁。
+     */
+    public String commitTempFile(Path temp, String sha256, long size, String originalFilename) throws IOException {
+        String extension = extensionOf(originalFilename);
+        String storedFilename = sha256 + extension;
+        storedFileRepository.acquire(storedFilename, sha256, size);
+        if (locate(storedFilename) == null) {
+            Path target = shardedPath(storedFilename);
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
         }
+        String publicName = UUID.randomUUID() + extension;
+        fileLinkRepository.save(new FileLink(publicName, storedFilename));
+        return publicName;
     }
 
-    public void deleteFile(String filename) throws IOException {
-        Path filePath = Paths.get(uploadDir).resolve(filename);
-        Files.deleteIfExists(filePath);
+    /** 根目录中尚未分片的文件（供迁移遍历），调用方负责关闭 */
+    public DirectoryStream<Path> listUnshardedFiles() throws IOException {
+        return Files.newDirectoryStream(uploadRoot(),
+                path -> Files.isRegularFile(path) && isShardable(path.getFileName().toString()));
+    }
+
+    /**
+     * 把根目录中的文件搬入分片目录，返回是否发生了移动。
+     * 原子改名，搬移期间读取仍能在两处之一找到文件；上传文件不会被删除，搬移无需与写入互斥。
+     */
+    public boolean moveToShard(String filename) throws IOException {
+        Path flat = resolvePath(filename);
+        Path target = shardedPath(filename);
+        if (flat.equals(target)) {
+            return false;
+        }
+        if (!Files.isRegularFile(flat)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        if (Files.exists(target)) {
+            Files.deleteIfExists(flat);  // 内容寻址，同名即同内容
+        } else {
+            Files.move(flat, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+
+    /**
+     * 开始一个分段到达的上传（如 WebSocket 二进制帧）：数据边到边写入临时文件并计算摘要，
+     * 写完后 {@link PendingFile#commit} 入库，中途放弃时 {@link PendingFile#discard} 清理。
+     */
+    public PendingFile openPendingFile(String originalFilename) throws IOException {
+        return new PendingFile(createTempFile(), originalFilename);
+    }
+
+    /** 非线程安全，由同一时刻只有一个写入者的调用方使用 */
+    public final class PendingFile {
+        private final Path temp;
+        private final String originalFilename;
+        private final MessageDigest digest = sha256();
+        private final WritableByteChannel channel;
+        private long size;
+
+        private PendingFile(Path temp, String originalFilename) throws IOException {
+            this.temp = temp;
+            this.originalFilename = originalFilename;
+            this.channel = Channels.newChannel(new DigestOutputStream(Files.newOutputStream(temp), digest));
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public void write(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                size += channel.write(data);
+            }
+        }
+
+        /** 按内容寻址入库并增加引用，返回公开文件名 */
+        public String commit() throws IOException {
+            try {
+                channel.close();
+                return commitTempFile(temp, HexFormat.of().formatHex(digest.digest()), size, originalFilename);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        public void discard() {
+            try {
+                channel.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                System.err.println("清理临时文件失败: " + temp + " - " + e.getMessage());
+            }
+        }
+    }
+
+    /** 在上传目录的临时区创建空文件（与正式文件同一文件系统，入库时可原子改名） */
+    public Path createTempFile() throws IOException {
+        Path tempDir = uploadRoot().resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return Files.createFile(tempDir.resolve(UUID.randomUUID() + ".part"));
+    }
+
+    private Path uploadRoot() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    static boolean isShardable(String filename) {
+        return SHARDABLE_NAME.matcher(filename).matches();
+    }
+
+    /** 文件（或其变体）在分片布局下的位置；不可分片的文件名仍在根目录 */
+    private Path shardedPath(String filename) {
+        Path flat = resolvePath(filename);
+        Matcher matcher = SHARDABLE_NAME.matcher(filename);
+        if (!matcher.matches()) {
+            return flat;
+        }
+        String prefix = matcher.group(2) != null ? matcher.group(2) + matcher.group(3) : filename.substring(0, 4);
+        return flat.resolveSibling(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(filename);
+    }
+
+    /**
+     * 已存在的文件位置：先分片目录后根目录，都没有时返回 null。
+     * 分片迁移可能恰好在两次检查之间把文件从根目录移走，根目录未命中时再查一次分片目录。
+     */
+    private Path locate(String filename) {
+        Path sharded = shardedPath(filename);
+        if (Files.isRegularFile(sharded)) {
+            return sharded;
+        }
+        Path flat = resolvePath(filename);
+        if (Files.isRegularFile(flat)) {
+            return flat;
+        }
+        return !sharded.equals(flat) && Files.isRegularFile(sharded) ? sharded : null;
+    }
+
+    /**
+     * 公开文件名对应的存储文件名：新上传经 file_links 映射到内容寻址的文件，早期文件即原名。
+     * 摘要文件名（及其变体）不接受外部直接访问。
+     */
+    private String storedName(String filename) {
+        resolvePath(filename);
+        if (CONTENT_NAME.matcher(filename).matches()) {
+            throw new IllegalArgumentException("文件不存在");
+        }
+        if (!isImmutableName(filename)) {
+            return filename;
+        }
+        return fileLinkRepository.findById(filename).map(FileLink::getStoredFilename).orElse(filename);
+    }
+
+    private Path resolvePath(String filename) {
+        Path root = uploadRoot();
+        Path filePath = root.resolve(filename).normalize();
+        if (!root.equals(filePath.getParent())) {
+            throw new IllegalArgumentException("非法的文件名");
+        }
+        return filePath;
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,305 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 图片缩略图与中等尺寸变体。
+ * <p>
+ * 变体与原图存放在同一目录，文件名为“存储文件名@尺寸.扩展名”，只支持 ImageIO 可读写的 JPEG/PNG，
+ * 其他格式（GIF、WebP、SVG）直接返回原图。
+ * <p>
+ * 生成只在专用的有界线程池上进行，请求线程从不解码图片：上传后预生成；请求时若尚未生成，
+ * 提交后台生成并由调用方先返回原图。同一变体同时只有一个生成任务（single-flight），
+ * 队列满时放弃本次提交，下次请求再试。生成结果先写临时文件再原子改名。
+ */
+@Service
+public class ImageVariantService {
+
+    // 超过此像素数的图片不做缩放，防止解压炸弹占满堆内存
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    public enum Size {
+        THUMB(160), MEDIUM(640);
+
+        private final int maxEdge;
+
+        Size(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        /** 解析 ?size= 参数，空值或 original 返回 null（原图） */
+        public static Size parse(String value) {
+            if (value == null || value.isBlank() || "original".equalsIgnoreCase(value)) {
+                return null;
+            }
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("不支持的图片尺寸: " + value);
+            }
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final FileService fileService;
+    private final ThreadPoolExecutor executor;
+    // 已排队或正在生成的变体路径
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter generated;
+    private final Counter rejected;
+
+    public ImageVariantService(
+            FileService fileService,
+            @Value("${app.images.variant-threads:2}") int threads,
+            @Value("${app.images.variant-queue:64}") int queueSize,
+            MeterRegistry meterRegistry) {
+        this.fileService = fileService;
+        AtomicInteger counter = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "image-variants-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.generated = variantCounter(meterRegistry, "generated");
+        this.rejected = variantCounter(meterRegistry, "rejected");
+        Gauge.builder("files.image.variants.queue", executor, e -> e.getQueue().size())
+                .description("等待生成的图片变体数")
+                .register(meterRegistry);
+    }
+
+    private static Counter variantCounter(MeterRegistry registry, String result) {
+        return Counter.builder("files.image.variants")
+                .tag("result", result)
+                .description("图片变体生成任务数（generated 为实际写出，rejected 为队列已满而放弃）")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static boolean isResizable(String filename) {
+        String lower = filename.toLowerCase(Locale.ROOT);
+        return !lower.contains("@")
+                && (lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png"));
+    }
+
+    /** 上传完成后调用，在后台生成全部尺寸 */
+    public void generateAsync(String filename) {
+        if (!isResizable(filename)) {
+            return;
+        }
+        Path original;
+        try {
+            original = fileService.resolveFile(filename);
+        } catch (RuntimeException e) {
+            System.err.println("图片变体生成失败: " + filename + " - " + e.getMessage());
+            return;
+        }
+        for (Size size : Size.values()) {
+            schedule(original, variantPath(original, size), size);
+        }
+    }
+
+    /**
+     * 返回指定尺寸的变体路径；不支持缩放的图片返回原图路径。
+     * 变体尚未生成时提交后台生成并返回 null，由调用方改为发送原图（不可按变体长期缓存）。
+     */
+    public Path variant(String filename, Size size) {
+        Path original = fileService.resolveFile(filename);
+        if (size == null || !isResizable(filename)) {
+            return original;
+        }
+        Path target = variantPath(original, size);
+        if (Files.exists(target)) {
+            return target;
+        }
+        schedule(original, target, size);
+        return null;
+    }
+
+    /** 内存中缩放（头像等可能来自打包资源的图片），不支持的格式原样返回 */
+    public byte[] resize(byte[] data, String filename, Size size) throws IOException {
+        if (size == null || !isResizable(filename)) {
+            return data;
+        }
+        BufferedImage source = read(new ByteArrayInputStream(data));
+        if (source == null || !needsResize(source, size)) {
+            return data;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(scale(source, size.maxEdge), filename, out);
+        return out.toByteArray();
+    }
+
+    // 变体按存储文件命名，同一内容的多个公开名共用一份变体
+    private static Path variantPath(Path original, Size size) {
+        return original.resolveSibling(variantName(original.getFileName().toString(), size));
+    }
+
+    // 同一变体只提交一次；任务开始后再检查一次，避免与刚结束的生成重复
+    private void schedule(Path original, Path target, Size size) {
+        if (!inFlight.add(target)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!Files.exists(target)) {
+                        writeVariant(original, target, size);
+                        generated.increment();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("图片变体生成失败: " + target.getFileName() + " - " + e.getMessage());
+                } finally {
+                    inFlight.remove(target);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(target);
+            rejected.increment();
+        }
+    }
+
+    static String variantName(String filename, Size size) {
+        int dot = filename.lastIndexOf('.');
+        return filename.substring(0, dot) + "@" + size.key() + filename.substring(dot);
+    }
+
+    private void writeVariant(Path original, Path target, Size size) throws IOException {
+        BufferedImage source;
+        try (InputStream in = Files.newInputStream(original)) {
+            source = read(in);
+        }
+        // 不用 createTempFile：其 600 权限会随改名带到变体文件上
+        Path temp = target.resolveSibling(".variant-" + UUID.randomUUID() + ".tmp");
+        try {
+            if (source == null || !needsResize(source, size)) {
+                // 原图已足够小（或无法解码）：变体即原图副本，之后不再重复判断
+                Files.copy(original, temp, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    write(scale(source, size.maxEdge), original.getFileName().toString(), out);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // 先读尺寸再解码，超大图片直接放弃
+    private static BufferedImage read(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static boolean needsResize(BufferedImage image, Size size) {
+        return Math.max(image.getWidth(), image.getHeight()) > size.maxEdge;
+    }
+
+    // 逐次减半再缩放到目标尺寸，比一次双线性插值到小尺寸锯齿更少
+    private static BufferedImage scale(BufferedImage source, int maxEdge) {
+        double ratio = (double) maxEdge / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String filename, OutputStream out) throws IOException {
+        if (filename.toLowerCase(Locale.ROOT).endsWith(".png")) {
+            ImageIO.write(image, "png", out);
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
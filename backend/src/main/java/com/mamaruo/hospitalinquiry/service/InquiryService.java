@@ -24,18 +24,21 @@ public class InquiryService {
     private final DoctorProfileRepository doctorProfileRepository;
     private final DoctorService doctorService;
     private final PatientProfileService patientProfileService;
+    private final CatalogVersionService catalogVersionService;
 
     public InquiryService(
             InquiryRepository inquiryRepository,
             PatientProfileRepository patientProfileRepository,
             DoctorProfileRepository doctorProfileRepository,
             DoctorService doctorService,
-            PatientProfileService patientProfileService) {
+            PatientProfileService patientProfileService,
+            CatalogVersionService catalogVersionService) {
         this.inquiryRepository = inquiryRepository;
         this.patientProfileRepository = patientProfileRepository;
         this.doctorProfileRepository = doctorProfileRepository;
         this.doctorService = doctorService;
         this.patientProfileService = patientProfileService;
+        this.catalogVersionService = catalogVersionService;
     }
 
     // 患者获取自己的问诊列表
@@ -96,6 +99,7 @@ public class InquiryService {
         inquiry.setStatus(InquiryStatus.PENDING);
         inquiry.setCreatedAt(LocalDateTime.now());
 
+        catalogVersionService.bumpUsers(userId, doctor.getUser().getId());
         return toDto(inquiryRepository.save(inquiry));
     }
 
@@ -117,6 +121,7 @@ public class InquiryService {
         inquiry.setStatus(InquiryStatus.IN_PROGRESS);
         inquiry.setAcceptedAt(LocalDateTime.now());
 
+        bumpParticipants(inquiry);
         return toDto(inquiryRepository.save(inquiry));
     }
 
@@ -138,6 +143,7 @@ public class InquiryService {
         inquiry.setStatus(InquiryStatus.COMPLETED);
         inquiry.setCompletedAt(LocalDateTime.now());
 
+        bumpParticipants(inquiry);
         return toDto(inquiryRepository.save(inquiry));
     }
 
@@ -151,6 +157,13 @@ public class InquiryService {
                 || inquiry.getDoctor().getUser().getId().equals(userId);
     }
 
+    // 问诊状态变化后，患者和医生两侧的列表都需要失效
+    private void bumpParticipants(Inquiry inquiry) {
+        catalogVersionService.bumpUsers(
+                inquiry.getPatientProfile().getUser().getId(),
+                inquiry.getDoctor().getUser().getId());
+    }
+
     private InquiryDto toDto(Inquiry inquiry) {
         return new InquiryDto(
                 inquiry.getId(),
@@ -1,64 +1,157 @@
 package com.mamaruo.hospitalinquiry.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.SecretKey;
 
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.mamaruo.hospitalinquiry.entity.Role;
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
 
+/**
+ * JWT 签发与校验。
+ * <p>
+ * 签名密钥与解析器只构建一次（二者均线程安全）。校验通过的声明按令牌的 SHA-256
+ * 缓存到过期时刻，同一令牌后续请求不再做 Base64 解码、JSON 解析和签名校验；
+ * 缓存有容量上限，超出时先清理已过期的条目，仍超出则清空。
+ * 令牌携带用户 id、角色与令牌版本，配合 {@link TokenVersionRegistry} 完成吊销检查。
+ */
 @Service
 public class JwtService {
-    String generateToken(String mobile) {
+    // 令牌有效期；吊销表只需覆盖这段时间内的吊销记录
+    static final long EXPIRATION_MILLIS = 1000 * 60 * 60 * 10;
+
+    private final SecretKey key = Keys.hmacShaKeyFor(
+            "aWoionFNOAINwonodaohtyioifbbeutwqzwdddWfoqwrznvWSaWapspnf".getBytes(StandardCharsets.UTF_8));
+    private final JwtParser parser = Jwts.parser().verifyWith(key).build();
+
+    // SHA-256(token) -> 已校验的声明
+    private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final UserRepository userRepository;
+
+    @Value("${app.jwt.cache-size:10000}")
+    private int cacheSize;
+
+    private record VerifiedToken(Claims claims, long expiresAt) {}
+
+    public JwtService(TokenVersionRegistry tokenVersionRegistry, UserRepository userRepository) {
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.userRepository = userRepository;
+    }
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
+    // 令牌携带用户 id、角色与令牌版本，认证时无需查库
+    String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
 
         return Jwts.builder()
                 .claims(claims)
-                .subject(mobile)
+                .subject(user.getMobile())
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10))
-                .signWith(getKey())
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_MILLIS))
+                .signWith(key)
                 .compact();
     }
 
-    private SecretKey getKey() {
-        byte[] keyBytes = "aWoionFNOAINwonodaohtyioifbbeutwqzwdddWfoqwrznvWSaWapspnf".getBytes();
-        return io.jsonwebtoken.security.Keys.hmacShaKeyFor(keyBytes);
-    }
+    /**
+     * 校验令牌（签名与有效期），有效时返回其声明。
+     */
+    public Optional<Claims> verify(String token) {
+        String cacheKey = hash(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(cacheKey);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return Optional.of(cached.claims());
+            }
+            verified.remove(cacheKey);
+            return Optional.empty();
+        }
 
-    public String extractMobile(String token) {
-        return extractClaim(token, Claims::getSubject);
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null ? expiration.getTime() : now + EXPIRATION_MILLIS;
+        if (verified.size() >= cacheSize) {
+            evict(now);
+        }
+        verified.put(cacheKey, new VerifiedToken(claims, expiresAt));
+        return Optional.of(claims);
     }
 
-    public boolean validToken(String token, UserDetails userDetails) {
-        final String mobile = extractMobile(token);
-        return (mobile.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    /**
+     * 由令牌得到当前用户：校验签名与有效期，再比对内存中的令牌版本与禁用状态。
+     * 旧格式令牌（不含 uid 声明）回退为按手机号查库，且仅在用户从未吊销过令牌时有效。
+     */
+    public Optional<UserPrincipal> resolvePrincipal(String token) {
+        Optional<Claims> verifiedClaims = verify(token);
+        if (verifiedClaims.isEmpty()) {
+            return Optional.empty();
+        }
+        Claims claims = verifiedClaims.get();
+        Integer userId = claims.get(CLAIM_USER_ID, Integer.class);
+        if (userId == null) {
+            return userRepository.findByMobile(claims.getSubject())
+                    .filter(user -> tokenVersionRegistry.isValid(user.getId(), 0))
+                    .map(UserPrincipal::new);
+        }
+        Integer version = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (version == null || role == null || !tokenVersionRegistry.isValid(userId, version)) {
+            return Optional.empty();
+        }
+        return Optional.of(new UserPrincipal(userId, claims.getSubject(), Role.valueOf(role)));
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public String extractMobile(String token) {
+        return verify(token)
+                .map(Claims::getSubject)
+                .orElseThrow(() -> new IllegalArgumentException("令牌无效或已过期"));
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private void evict(long now) {
+        verified.values().removeIf(token -> token.expiresAt() <= now);
+        if (verified.size() >= cacheSize) {
+            verified.clear();
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
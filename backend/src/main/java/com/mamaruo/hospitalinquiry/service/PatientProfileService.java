@@ -2,6 +2,7 @@ package com.mamaruo.hospitalinquiry.service;
 
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,6 +11,7 @@ import com.mamaruo.hospitalinquiry.entity.PatientProfile;
 import com.mamaruo.hospitalinquiry.entity.User;
 import com.mamaruo.hospitalinquiry.entity.dto.CreatePatientProfileRequest;
 import com.mamaruo.hospitalinquiry.entity.dto.PatientProfileDto;
+import com.mamaruo.hospitalinquiry.repository.InquiryRepository;
 import com.mamaruo.hospitalinquiry.repository.PatientProfileRepository;
 import com.mamaruo.hospitalinquiry.repository.UserRepository;
 
@@ -17,11 +19,17 @@ import com.mamaruo.hospitalinquiry.repository.UserRepository;
 public class PatientProfileService {
     private final PatientProfileRepository patientProfileRepository;
     private final UserRepository userRepository;
+    private final InquiryRepository inquiryRepository;
+    private final CatalogVersionService catalogVersionService;
 
     public PatientProfileService(PatientProfileRepository patientProfileRepository, 
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            InquiryRepository inquiryRepository,
+            CatalogVersionService catalogVersionService) {
         this.patientProfileRepository = patientProfileRepository;
         this.userRepository = userRepository;
+        this.inquiryRepository = inquiryRepository;
+        this.catalogVersionService = catalogVersionService;
     }
 
     public List<PatientProfileDto> getProfilesByUserId(Integer userId) {
@@ -66,6 +74,15 @@ public class PatientProfileService {
         profile.setBirthDate(request.birthDate());
         profile.setMedicalHistory(request.medicalHistory());
 
+        // 问诊列表中内嵌了问诊人信息，患者及相关医生的列表都需要失效
+        Integer[] affectedUsers = Stream.concat(
+                Stream.of(userId),
+                inquiryRepository.findByPatientProfileId(id).stream()
+                        .map(i -> i.getDoctor().getUser().getId()))
+                .distinct()
+                .toArray(Integer[]::new);
+        catalogVersionService.bumpUsers(affectedUsers);
+
         return toDto(patientProfileRepository.save(profile));
     }
 
@@ -0,0 +1,168 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 已注册手机号与身份证号的布隆过滤器，用于注册、创建医生/管理员前的查重。
+ * <p>
+ * 过滤器判定“一定不存在”时跳过查重查询，直接插入；判定“可能存在”时才查库以给出明确提示。
+ * 唯一约束是最终裁决：其他节点新注册的用户不在本节点的过滤器中，并发注册也可能同时通过预检，
+ * 这些情况都由插入时的唯一约束冲突兜底（见 {@link #duplicateUser}）。
+ * 启动时在后台全量构建，构建完成前所有判定都视为“可能存在”；新增用户随插入写入，
+ * 元素数超过设计容量后按新规模重建。
+ */
+@Component
+public class RegisteredUserFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "registered-user-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong inserted = new AtomicLong();
+
+    @Value("${app.signup.bloom-min-capacity:100000}")
+    private long minCapacity;
+
+    private volatile BloomFilter mobiles;
+    private volatile BloomFilter idCards;
+    private volatile boolean ready;
+
+    public RegisteredUserFilter(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean mightContainMobile(String mobile) {
+        return mobile == null || !ready || mobiles.mightContain(mobile);
+    }
+
+    public boolean mightContainIdCard(String idCard) {
+        return idCard == null || !ready || idCards.mightContain(normalizeIdCard(idCard));
+    }
+
+    // 当前设计容量，包内可见以便测试观察重建
+    long capacity() {
+        BloomFilter current = mobiles;
+        return current == null ? 0 : current.capacity();
+    }
+
+    /** 新用户写入后调用；事务随后回滚只会多出假阳性，不影响正确性 */
+    public void add(User user) {
+        BloomFilter currentMobiles = mobiles;
+        BloomFilter currentIdCards = idCards;
+        if (currentMobiles == null) {
+            return;
+        }
+        if (user.getMobile() != null) {
+            currentMobiles.put(user.getMobile());
+        }
+        if (user.getIdCard() != null) {
+            currentIdCards.put(normalizeIdCard(user.getIdCard()));
+        }
+        if (inserted.incrementAndGet() > currentMobiles.capacity()) {
+            scheduleRebuild();
+        }
+    }
+
+    /** 把唯一约束冲突翻译为面向用户的提示；按约束名区分，不依赖数据库的错误文本 */
+    public static IllegalArgumentException duplicateUser(DataIntegrityViolationException e) {
+        String constraint = null;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                constraint = violation.getConstraintName();
+                break;
+            }
+        }
+        if (User.UK_ID_CARD.equalsIgnoreCase(constraint)) {
+            return new IllegalArgumentException("该身份证号已被注册");
+        }
+        if (User.UK_MOBILE.equalsIgnoreCase(constraint)) {
+            return new IllegalArgumentException("该手机号已被注册");
+        }
+        return new IllegalArgumentException("用户信息与已有账号冲突");
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    System.err.println("注册查重过滤器构建失败: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        long capacity = Math.max(minCapacity, userRepository.count() * 2);
+        BloomFilter newMobiles = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        BloomFilter newIdCards = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+
+        // 先发布新过滤器再全量装载：装载期间插入的用户直接写入新过滤器，不会遗漏
+        ready = false;
+        mobiles = newMobiles;
+        idCards = newIdCards;
+        inserted.set(0);
+        long count = readOnlyTransaction.execute(status -> {
+            long[] loaded = new long[1];
+            try (Stream<String> stream = userRepository.streamMobiles()) {
+                stream.forEach(mobile -> {
+                    newMobiles.put(mobile);
+                    loaded[0]++;
+                });
+            }
+            try (Stream<String> stream = userRepository.streamIdCards()) {
+                stream.map(RegisteredUserFilter::normalizeIdCard).forEach(newIdCards::put);
+            }
+            return loaded[0];
+        });
+        inserted.addAndGet(count);
+        ready = true;
+        System.out.println("注册查重过滤器构建完成，共 " + count + " 个账号，耗时 "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // 身份证末位 X 大小写不敏感
+    private static String normalizeIdCard(String idCard) {
+        return idCard.toUpperCase();
+    }
+}
@@ -0,0 +1,144 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 令牌吊销表：记录令牌有效期内吊销过令牌的用户与被禁用的用户，只有这部分用户需要比对。
+ * 更早吊销的用户，旧版本令牌均已过期，仍在有效期内的令牌必然是吊销后签发的，无需再比对，
+ * 因此表的大小只取决于近期的吊销次数，不随时间累积。
+ * <p>
+ * 本节点的修改（改密、重置密码、禁用）立即生效；其他节点的修改由定时全量刷新同步，
+ * 延迟不超过刷新间隔。认证时只读内存，不访问数据库。
+ * <p>
+ * 吊销时间列新增前吊销过令牌的用户没有时间记录，由 {@link com.mamaruo.hospitalinquiry.config.DatabaseSchemaInitializer}
+ * 在启动时补齐；补齐之前的加载把这些用户按“刚刚吊销”处理，补齐后紧接着再刷新一次。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class TokenVersionRegistry implements CommandLineRunner {
+
+    private final UserRepository userRepository;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-version-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.auth.token-version-refresh-seconds:10}")
+    private long refreshSeconds;
+
+    // 刷新时整体替换，读取无锁
+    private volatile State state = new State(Map.of(), Set.of());
+
+    private record Revocation(int version, Instant revokedAt) {}
+
+    private record State(Map<Integer, Revocation> revocations, Set<Integer> disabled) {}
+
+    public TokenVersionRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /** 账号未禁用，且近期未吊销或令牌中的版本与吊销后的版本一致时有效 */
+    public boolean isValid(Integer userId, int tokenVersion) {
+        State current = state;
+        if (current.disabled().contains(userId)) {
+            return false;
+        }
+        Revocation revocation = current.revocations().get(userId);
+        return revocation == null || revocation.version() == tokenVersion;
+    }
+
+    /** 用户的令牌版本或启用状态已在本节点修改（已保存） */
+    public synchronized void update(User user) {
+        Map<Integer, Revocation> revocations = new HashMap<>(state.revocations());
+        Set<Integer> disabled = new HashSet<>(state.disabled());
+        if (user.getTokensRevokedAt() != null) {
+            revocations.put(user.getId(), new Revocation(user.getTokenVersion(), user.getTokensRevokedAt()));
+        }
+        if (user.getEnabled()) {
+            disabled.remove(user.getId());
+        } else {
+            disabled.add(user.getId());
+        }
+        state = new State(revocations, disabled);
+    }
+
+    // 启动时同步加载一次，避免在首次刷新前放行已吊销的令牌
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    // 紧随数据库初始化（吊销时间补齐）之后再加载一次
+    @Override
+    public void run(String... args) {
+        refresh();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                System.err.println("令牌版本刷新失败: " + e.getMessage());
+            }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void refresh() {
+        // 多留一个刷新间隔的余量，覆盖节点间的时钟偏差
+        Instant now = Instant.now();
+        Instant since = now.minusMillis(JwtService.EXPIRATION_MILLIS).minusSeconds(refreshSeconds);
+        Map<Integer, Revocation> revocations = new HashMap<>();
+        Set<Integer> disabled = new HashSet<>();
+        for (UserRepository.TokenState row : userRepository.findRevocationStates(since)) {
+            Instant revokedAt = row.getTokensRevokedAt();
+            if (revokedAt == null && row.getTokenVersion() > 0) {
+                revokedAt = now;  // 尚未补齐吊销时间，保守地视为刚刚吊销
+            }
+            if (revokedAt != null && revokedAt.isAfter(since)) {
+                revocations.put(row.getId(), new Revocation(row.getTokenVersion(), revokedAt));
+            }
+            if (!row.getEnabled()) {
+                disabled.add(row.getId());
+            }
+        }
+        synchronized (this) {
+            // 版本只增不减：查询期间本节点刚写入的更高版本不能被旧结果覆盖；已出窗口的记录随之淘汰
+            state.revocations().forEach((userId, revocation) -> {
+                if (revocation.revokedAt().isAfter(since)) {
+                    revocations.merge(userId, revocation, (a, b) -> a.version() >= b.version() ? a : b);
+                }
+            });
+            state = new State(Map.copyOf(revocations), Set.copyOf(disabled));
+        }
+    }
+}
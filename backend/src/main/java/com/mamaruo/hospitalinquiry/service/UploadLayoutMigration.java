@@ -0,0 +1,102 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 把分片布局之前平铺在上传根目录的文件搬入分片目录。
+ * <p>
+ * 由管理员触发，在单个后台线程上逐个移动，同一时刻只运行一次；可重复执行，
+ * 只处理仍留在根目录的文件。迁移期间读取照常进行（分片目录未命中时回退到根目录）。
+ */
+@Component
+public class UploadLayoutMigration {
+
+    private final FileService fileService;
+    private final Timer moveTimer;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "upload-layout-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    public UploadLayoutMigration(FileService fileService, MeterRegistry meterRegistry) {
+        this.fileService = fileService;
+        this.moveTimer = Timer.builder("files.io")
+                .tag("operation", "migrate")
+                .description("文件 I/O 耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    public record Status(boolean running, long scanned, long moved, long failed,
+            LocalDateTime startedAt, LocalDateTime finishedAt) {}
+
+    /** 启动迁移；已在运行时直接返回当前进度 */
+    public Status start() {
+        if (running.compareAndSet(false, true)) {
+            scanned.set(0);
+            moved.set(0);
+            failed.set(0);
+            startedAt = LocalDateTime.now();
+            finishedAt = null;
+            executor.execute(this::migrate);
+        }
+        return status();
+    }
+
+    public Status status() {
+        return new Status(running.get(), scanned.get(), moved.get(), failed.get(), startedAt, finishedAt);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void migrate() {
+        try (DirectoryStream<Path> files = fileService.listUnshardedFiles()) {
+            for (Path file : files) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                scanned.incrementAndGet();
+                String filename = file.getFileName().toString();
+                try {
+                    if (moveTimer.recordCallable(() -> fileService.moveToShard(filename))) {
+                        moved.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    System.err.println("文件迁移失败: " + filename + " - " + e.getMessage());
+                }
+            }
+            System.out.println("上传目录分片迁移完成: 扫描 " + scanned.get() + "，移动 " + moved.get()
+                    + "，失败 " + failed.get());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("上传目录分片迁移中断: " + e.getMessage());
+        } finally {
+            finishedAt = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.mamaruo.hospitalinquiry.service;
 
+import java.time.Instant;
+
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -23,27 +26,33 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final RegisteredUserFilter registeredUserFilter;
 
     public UserService(
         UserRepository userRepository,
         PasswordEncoder passwordEncoder,
         AuthenticationManager authenticationManager,
-        JwtService jwtService
+        JwtService jwtService,
+        TokenVersionRegistry tokenVersionRegistry,
+        RegisteredUserFilter registeredUserFilter
     ) {
         this.userRepo = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.registeredUserFilter = registeredUserFilter;
     }
 
     public UserResponse signup(SignupRequest request) {
-        // 检查手机号是否已存在
-        if (userRepo.findByMobile(request.mobile()).isPresent()) {
+        // 布隆过滤器判定一定未注册时跳过查重查询，重复与否最终以唯一约束为准
+        if (registeredUserFilter.mightContainMobile(request.mobile())
+                && userRepo.existsByMobile(request.mobile())) {
             throw new IllegalArgumentException("该手机号已被注册");
         }
-
-        // 检查身份证号是否已存在
-        if (userRepo.findByIdCard(request.idCard()).isPresent()) {
+        if (registeredUserFilter.mightContainIdCard(request.idCard())
+                && userRepo.existsByIdCard(request.idCard())) {
             throw new IllegalArgumentException("该身份证号已被注册");
         }
 
@@ -55,7 +64,13 @@ public class UserService {
         // 注册仅允许创建患者账户，防止客户端伪造角色
         user.setRole(Role.PATIENT);
         user.setEnabled(true);
-        User savedUser = userRepo.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepo.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw RegisteredUserFilter.duplicateUser(e);
+        }
+        registeredUserFilter.add(savedUser);
         return UserResponse.fromUser(savedUser);
     }
 
@@ -65,9 +80,9 @@ public class UserService {
                     new UsernamePasswordAuthenticationToken(request.mobile(), request.password()));
 
             if (auth.isAuthenticated()) {
-                String token = jwtService.generateToken(request.mobile());
                 User user = userRepo.findByMobile(request.mobile())
                     .orElseThrow(() -> new IllegalStateException("用户不存在"));
+                String token = jwtService.generateToken(user);
                 return new LoginResponse(token, UserResponse.fromUser(user));
             } else {
                 throw new BadCredentialsException("认证失败");
@@ -94,7 +109,7 @@ public class UserService {
         }
 
         user.setPassword(passwordEncoder.encode(request.newPassword()));
-        return UserResponse.fromUser(userRepo.save(user));
+        return UserResponse.fromUser(revokeTokens(user));
     }
 
     public void forgotPassword(ForgotPasswordRequest request) {
@@ -105,6 +120,17 @@ public class UserService {
             .orElseThrow(() -> new IllegalArgumentException("信息不匹配，无法重置密码"));
 
         user.setPassword(passwordEncoder.encode(request.newPassword()));
-        userRepo.save(user);
+        revokeTokens(user);
+    }
+
+    /**
+     * 递增令牌版本并保存，使该用户已签发的令牌全部失效（改密、重置密码、禁用账号时调用）
+     */
+    public User revokeTokens(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        user.setTokensRevokedAt(Instant.now());
+        User saved = userRepo.save(user);
+        tokenVersionRegistry.update(saved);
+        return saved;
     }
 }
\ No newline at end of file
@@ -1,49 +1,109 @@
 package com.mamaruo.hospitalinquiry.websocket;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mamaruo.hospitalinquiry.entity.MessageType;
+import com.mamaruo.hospitalinquiry.entity.Role;
 import com.mamaruo.hospitalinquiry.entity.dto.MessageDto;
+import com.mamaruo.hospitalinquiry.metrics.ChatMetrics;
+import com.mamaruo.hospitalinquiry.ratelimit.RateLimiter;
+import com.mamaruo.hospitalinquiry.service.FileService;
+import com.mamaruo.hospitalinquiry.service.ImageVariantService;
 import com.mamaruo.hospitalinquiry.service.InquiryService;
 import com.mamaruo.hospitalinquiry.service.JwtService;
 import com.mamaruo.hospitalinquiry.service.MessageService;
-import com.mamaruo.hospitalinquiry.repository.UserRepository;
 
+/**
+ * 问诊聊天。
+ * <p>
+ * 文本帧承载 JSON 消息；图片可直接在连接内上传：先发 {"type":"image_start","filename":..,"size":..}，
+ * 随后以二进制帧连续发送图片内容（可分多帧），收满声明大小后入库、保存为图片消息并广播，
+ * 省去单独的 HTTP 上传往返。每个会话同一时刻只有一张图片在传。
+ * <p>
+ * 图片帧的落盘、入库与消息保存都在 {@link FileService#supplyIo} 的 I/O 线程池上按到达顺序串行执行，
+ * 不占用 WebSocket 线程；入库前按文件头校验确为声明扩展名对应的图片格式。
+ * <p>
+ * 容器线程与 I/O 线程都会向会话发消息，而底层会话不允许并发发送，
+ * 因此注册的会话统一包装为 {@link ConcurrentWebSocketSessionDecorator}，所有发送都经由包装后的会话。
+ */
 @Component
-public class ChatWebSocketHandler extends TextWebSocketHandler {
+public class ChatWebSocketHandler extends AbstractWebSocketHandler {
+
+    // 扩展名 -> 图片格式，格式需与文件头一致
+    private static final Map<String, String> IMAGE_EXTENSIONS = Map.of(
+            "jpg", "jpeg", "jpeg", "jpeg", "png", "png", "gif", "gif", "webp", "webp");
+    // 判断格式所需的文件头长度（WebP 需要 12 字节）
+    private static final int HEADER_LENGTH = 12;
 
     private final ObjectMapper objectMapper;
     private final JwtService jwtService;
-    private final UserRepository userRepository;
     private final MessageService messageService;
     private final InquiryService inquiryService;
+    private final DoctorPresenceRegistry presenceRegistry;
+    private final ChatMetrics chatMetrics;
+    private final RateLimiter rateLimiter;
+    private final FileService fileService;
+    private final ImageVariantService imageVariantService;
 
     // 存储 WebSocket 会话: inquiryId -> Map<userId, session>
     private final Map<Integer, Map<Integer, WebSocketSession>> inquirySessions = new ConcurrentHashMap<>();
     // 存储会话与用户的映射: sessionId -> {userId, inquiryId}
     private final Map<String, SessionInfo> sessionInfoMap = new ConcurrentHashMap<>();
+    // 正在上传的图片: sessionId -> 图片
+    private final Map<String, PendingImage> pendingImages = new ConcurrentHashMap<>();
+
+    @Value("${app.chat.image-max-size:10485760}")
+    private long imageMaxSize;
+
+    // 单个二进制帧的上限，需容纳客户端的分段大小（Tomcat 默认仅 8 KB）
+    @Value("${app.chat.binary-buffer-size:131072}")
+    private int binaryBufferSize;
+
+    // 并发发送时排队等待的上限：单次发送超时或积压超出缓冲即断开该会话，客户端会自动重连
+    @Value("${app.chat.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+
+    @Value("${app.chat.send-buffer-size:524288}")
+    private int sendBufferSize;
 
     public ChatWebSocketHandler(
             ObjectMapper objectMapper,
             JwtService jwtService,
-            UserRepository userRepository,
             MessageService messageService,
-            InquiryService inquiryService) {
+            InquiryService inquiryService,
+            DoctorPresenceRegistry presenceRegistry,
+            ChatMetrics chatMetrics,
+            RateLimiter rateLimiter,
+            FileService fileService,
+            ImageVariantService imageVariantService) {
         this.objectMapper = objectMapper;
         this.jwtService = jwtService;
-        this.userRepository = userRepository;
         this.messageService = messageService;
         this.inquiryService = inquiryService;
+        this.presenceRegistry = presenceRegistry;
+        this.chatMetrics = chatMetrics;
+        this.rateLimiter = rateLimiter;
+        this.fileService = fileService;
+        this.imageVariantService = imageVariantService;
+        chatMetrics.bindSessions(sessionInfoMap);
     }
 
     @Override
@@ -62,14 +122,14 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
         try {
             // 验证 token
-            String mobile = jwtService.extractMobile(token);
-            var userOpt = userRepository.findByMobile(mobile);
-            if (userOpt.isEmpty()) {
-                session.close(CloseStatus.BAD_DATA.withReason("用户不存在"));
+            var principalOpt = jwtService.resolvePrincipal(token);
+            if (principalOpt.isEmpty()) {
+                session.close(CloseStatus.BAD_DATA.withReason("令牌无效或已过期"));
                 return;
             }
 
-            Integer userId = userOpt.get().getId();
+            Integer userId = principalOpt.get().getId();
+            boolean doctor = principalOpt.get().getRole() == Role.DOCTOR;
             Integer inquiryId = Integer.parseInt(inquiryIdStr);
 
             // 验证用户是否有权访问该问诊
@@ -78,15 +138,21 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 return;
             }
 
+            session.setBinaryMessageSizeLimit(binaryBufferSize);
+            WebSocketSession outbound = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, sendBufferSize);
+
             // 注册会话
-            sessionInfoMap.put(session.getId(), new SessionInfo(userId, inquiryId));
+            sessionInfoMap.put(session.getId(), new SessionInfo(userId, inquiryId, doctor, outbound));
             inquirySessions.computeIfAbsent(inquiryId, k -> new ConcurrentHashMap<>())
-                    .put(userId, session);
+                    .put(userId, outbound);
+            if (doctor) {
+                presenceRegistry.connected(userId);
+            }
 
-            System.out.println("WebSocket 连接建立: userId=" + userId + ", inquiryId=" + inquiryId);
+            chatMetrics.connectionOpened();
 
             // 发送连接成功消息
-            sendMessage(session, new WebSocketResponse("connected", "连接成功", null));
+            sendMessage(outbound, new WebSocketResponse("connected", "连接成功", null));
 
         } catch (Exception e) {
             session.close(CloseStatus.BAD_DATA.withReason("认证失败: " + e.getMessage()));
@@ -95,10 +161,16 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        chatMetrics.inbound();
         SessionInfo sessionInfo = sessionInfoMap.get(session.getId());
         if (sessionInfo == null) {
             return;
         }
+        // 超出发送者配额的帧直接丢弃，不落库也不广播
+        if (!rateLimiter.tryAcquireChat(sessionInfo.userId())) {
+            sendMessage(sessionInfo.outbound(), new WebSocketResponse("error", "发送过于频繁，请稍后再试", null));
+            return;
+        }
 
         try {
             JsonNode jsonNode = objectMapper.readTree(message.getPayload());
@@ -109,33 +181,155 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 String msgType = jsonNode.has("msgType") ? jsonNode.get("msgType").asText() : "TEXT";
                 
                 // 保存消息到数据库
-                MessageDto savedMessage = messageService.saveMessage(
+                MessageDto savedMessage = chatMetrics.timeSave(() -> messageService.saveMessage(
                         sessionInfo.inquiryId(),
                         sessionInfo.userId(),
                         MessageType.valueOf(msgType),
                         content
-                );
+                ));
 
                 // 广播消息给该问诊的所有参与者
+                long savedAt = System.nanoTime();
                 broadcastToInquiry(sessionInfo.inquiryId(), new WebSocketResponse("message", null, savedMessage));
+                chatMetrics.recordDelivery(savedAt);
+            } else if ("image_start".equals(type)) {
+                startImage(session, jsonNode.path("filename").asText(""), jsonNode.path("size").asLong(0));
             }
         } catch (Exception e) {
-            sendMessage(session, new WebSocketResponse("error", "消息处理失败: " + e.getMessage(), null));
+            sendMessage(sessionInfo.outbound(), new WebSocketResponse("error", "消息处理失败: " + e.getMessage(), null));
+        }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        chatMetrics.inbound();
+        SessionInfo sessionInfo = sessionInfoMap.get(session.getId());
+        if (sessionInfo == null) {
+            return;
+        }
+        // 丢弃超额的帧会使图片残缺，整张放弃；此后的超额帧不再逐帧回复
+        if (!rateLimiter.tryAcquireChatBinary(sessionInfo.userId())) {
+            if (pendingImages.containsKey(session.getId())) {
+                discardImage(session.getId());
+                sendMessage(sessionInfo.outbound(), new WebSocketResponse("error", "图片发送过于频繁，请稍后再试", null));
+            }
+            return;
+        }
+        PendingImage image = pendingImages.get(session.getId());
+        if (image == null) {
+            sendMessage(sessionInfo.outbound(), new WebSocketResponse("error", "请先发送 image_start", null));
+            return;
+        }
+        if (image.received + message.getPayloadLength() > image.size) {
+            discardImage(session.getId());
+            sendMessage(sessionInfo.outbound(), new WebSocketResponse("error", "图片发送失败: 图片数据超出声明大小", null));
+            return;
+        }
+
+        // 帧缓冲区在本方法返回后会被容器复用，交给 I/O 线程前先复制
+        ByteBuffer payload = message.getPayload();
+        ByteBuffer data = ByteBuffer.allocate(payload.remaining()).put(payload).flip();
+        image.captureHeader(data);
+        image.received += data.remaining();
+        image.enqueue(fileService, "chat-image-write", () -> {
+            image.file.write(data);
+            return null;
+        });
+        if (image.received < image.size) {
+            return;
+        }
+
+        pendingImages.remove(session.getId());
+        image.enqueue(fileService, "chat-image-commit", () -> {
+            String format = detectImageFormat(image.header, image.headerLength);
+            if (!image.format.equals(format)) {
+                throw new IllegalArgumentException("图片内容与格式不符");
+            }
+            String filename = image.file.commit();
+            imageVariantService.generateAsync(filename);
+            return chatMetrics.timeSave(() -> messageService.saveMessage(
+                    sessionInfo.inquiryId(),
+                    sessionInfo.userId(),
+                    MessageType.IMAGE,
+                    "/api/files/" + filename
+            ));
+        }).whenComplete((savedMessage, e) -> {
+            if (e != null) {
+                image.file.discard();
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                try {
+                    sendMessage(sessionInfo.outbound(),
+                            new WebSocketResponse("error", "图片发送失败: " + cause.getMessage(), null));
+                } catch (IOException ex) {
+                    System.err.println("发送消息失败: " + ex.getMessage());
+                }
+                return;
+            }
+            long savedAt = System.nanoTime();
+            broadcastToInquiry(sessionInfo.inquiryId(), new WebSocketResponse("message", null, savedMessage));
+            chatMetrics.recordDelivery(savedAt);
+        });
+    }
+
+    private void startImage(WebSocketSession session, String filename, long size) throws IOException {
+        String extension = filename.contains(".")
+                ? filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT) : "";
+        String format = IMAGE_EXTENSIONS.get(extension);
+        if (format == null) {
+            throw new IllegalArgumentException("不支持的图片格式");
+        }
+        if (size <= 0 || size > imageMaxSize) {
+            throw new IllegalArgumentException("图片大小须在 1 字节到 " + (imageMaxSize >> 20) + " MB 之间");
         }
+        // 上一张未传完的图片视为放弃
+        discardImage(session.getId());
+        pendingImages.put(session.getId(), new PendingImage(fileService.openPendingFile(filename), size, format));
+    }
+
+    // 等已排队的写入结束后再清理临时文件
+    private void discardImage(String sessionId) {
+        PendingImage image = pendingImages.remove(sessionId);
+        if (image != null) {
+            image.tail.whenComplete((ignored, e) -> image.file.discard());
+        }
+    }
+
+    /** 按文件头识别图片格式，无法识别时返回 null */
+    static String detectImageFormat(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "jpeg";
+        }
+        if (length >= 8 && Arrays.equals(header, 0, 8,
+                new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, 0, 8)) {
+            return "png";
+        }
+        String ascii = new String(header, 0, length, StandardCharsets.ISO_8859_1);
+        if (ascii.startsWith("GIF87a") || ascii.startsWith("GIF89a")) {
+            return "gif";
+        }
+        if (length >= 12 && ascii.startsWith("RIFF") && ascii.startsWith("WEBP", 8)) {
+            return "webp";
+        }
+        return null;
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        discardImage(session.getId());
         SessionInfo sessionInfo = sessionInfoMap.remove(session.getId());
         if (sessionInfo != null) {
             Map<Integer, WebSocketSession> sessions = inquirySessions.get(sessionInfo.inquiryId());
             if (sessions != null) {
-                sessions.remove(sessionInfo.userId());
+                // 重连时新会话可能已先注册，只移除本会话
+                sessions.remove(sessionInfo.userId(), sessionInfo.outbound());
                 if (sessions.isEmpty()) {
                     inquirySessions.remove(sessionInfo.inquiryId());
                 }
             }
-            System.out.println("WebSocket 连接关闭: userId=" + sessionInfo.userId() + ", inquiryId=" + sessionInfo.inquiryId());
+            if (sessionInfo.doctor()) {
+                presenceRegistry.disconnected(sessionInfo.userId());
+            }
+            chatMetrics.connectionClosed();
         }
     }
 
@@ -161,6 +355,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     private void sendMessage(WebSocketSession session, WebSocketResponse response) throws IOException {
         if (session.isOpen()) {
             session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+            chatMetrics.outbound();
         }
     }
 
@@ -177,7 +372,41 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         return params;
     }
 
-    private record SessionInfo(Integer userId, Integer inquiryId) {}
+    /**
+     * 正在接收的图片。received、header 只在 WebSocket 线程上访问（同一会话的帧依次到达）；
+     * 文件写入经 tail 串行排在 I/O 线程池上。
+     */
+    private static final class PendingImage {
+        final FileService.PendingFile file;
+        final long size;
+        final String format;
+        final byte[] header = new byte[HEADER_LENGTH];
+        int headerLength;
+        long received;
+        CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        PendingImage(FileService.PendingFile file, long size, String format) {
+            this.file = file;
+            this.size = size;
+            this.format = format;
+        }
+
+        void captureHeader(ByteBuffer data) {
+            int count = Math.min(HEADER_LENGTH - headerLength, data.remaining());
+            data.get(data.position(), header, headerLength, count);
+            headerLength += count;
+        }
+
+        // 排在此前所有操作之后执行；前面的写入失败时后续操作不再执行，直接以同一异常结束
+        <T> CompletableFuture<T> enqueue(FileService fileService, String operation, FileService.IoTask<T> task) {
+            CompletableFuture<T> result = tail.thenCompose(ignored -> fileService.supplyIo(operation, task));
+            tail = result.thenApply(ignored -> null);
+            return result;
+        }
+    }
+
+    // outbound 为并发安全的发送包装，向该会话发消息一律经由它
+    private record SessionInfo(Integer userId, Integer inquiryId, boolean doctor, WebSocketSession outbound) {}
     
     private record WebSocketResponse(String type, String message, Object data) {}
 }
@@ -0,0 +1,102 @@
+package com.mamaruo.hospitalinquiry.websocket;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 医生在线状态，由聊天 WebSocket 会话推导，不落库。
+ * <p>
+ * 医生建立第一个会话即视为在线；最后一个会话断开后再等待一个宽限期，
+ * 期间重连不会产生状态抖动。在线状态变化频繁，不参与目录版本，
+ * 医生列表与预渲染快照中也不含在线字段，客户端通过批量查询接口获取。
+ */
+@Component
+public class DoctorPresenceRegistry {
+
+    // 在线医生的 userId 集合，读取无锁
+    private final Set<Integer> online = ConcurrentHashMap.newKeySet();
+    // 以下两个映射仅在 synchronized 方法内修改
+    private final Map<Integer, Integer> sessionCounts = new HashMap<>();
+    private final Map<Integer, ScheduledFuture<?>> pendingOffline = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "doctor-presence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.presence.grace-seconds:30}")
+    private long graceSeconds;
+
+    public DoctorPresenceRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("doctors.online", online, Set::size)
+                .description("在线医生数（本节点）")
+                .register(meterRegistry);
+    }
+
+    public boolean isOnline(Integer userId) {
+        return userId != null && online.contains(userId);
+    }
+
+    public int getOnlineCount() {
+        return online.size();
+    }
+
+    /** 批量查询，返回 userId -> 是否在线（保持入参顺序） */
+    public Map<Integer, Boolean> getPresence(Collection<Integer> userIds) {
+        Map<Integer, Boolean> result = new LinkedHashMap<>();
+        for (Integer userId : userIds) {
+            result.put(userId, isOnline(userId));
+        }
+        return result;
+    }
+
+    public synchronized void connected(Integer userId) {
+        sessionCounts.merge(userId, 1, Integer::sum);
+        ScheduledFuture<?> pending = pendingOffline.remove(userId);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        online.add(userId);
+    }
+
+    public synchronized void disconnected(Integer userId) {
+        Integer remaining = sessionCounts.computeIfPresent(userId, (k, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null && !pendingOffline.containsKey(userId)) {
+            // 任务执行时需确认自己仍是当前的待下线任务（可能已被重连取消并重新排期）
+            ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+            self[0] = scheduler.schedule(() -> expire(userId, self[0]), graceSeconds, TimeUnit.SECONDS);
+            pendingOffline.put(userId, self[0]);
+        }
+    }
+
+    private synchronized void expire(Integer userId, ScheduledFuture<?> self) {
+        if (pendingOffline.get(userId) != self) {
+            return;
+        }
+        pendingOffline.remove(userId);
+        if (!sessionCounts.containsKey(userId)) {
+            online.remove(userId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
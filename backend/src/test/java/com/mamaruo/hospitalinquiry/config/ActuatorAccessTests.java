@@ -0,0 +1,54 @@
+package com.mamaruo.hospitalinquiry.config;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.mamaruo.hospitalinquiry.entity.Role;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+
+/**
+ * 指标抓取只对内网来源或管理员开放；健康检查公开。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class ActuatorAccessTests {
+
+    private static final UserPrincipal PATIENT = new UserPrincipal(-1, "13900000000", Role.PATIENT);
+    private static final UserPrincipal ADMIN = new UserPrincipal(-3, "13900000002", Role.ADMIN);
+
+    private static final RequestPostProcessor EXTERNAL = request -> {
+        request.setRemoteAddr("203.0.113.7");
+        return request;
+    };
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void externalScrapeRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(EXTERNAL)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(EXTERNAL).with(user(PATIENT)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").with(EXTERNAL).with(user(ADMIN))).andExpect(status().isOk());
+    }
+
+    @Test
+    void localScrapeIsAllowed() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk());
+    }
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health").with(EXTERNAL)).andExpect(status().isOk());
+    }
+}
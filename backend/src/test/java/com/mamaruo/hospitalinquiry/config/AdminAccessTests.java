@@ -0,0 +1,56 @@
+package com.mamaruo.hospitalinquiry.config;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.mamaruo.hospitalinquiry.entity.Role;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+
+/**
+ * 管理接口只对管理员开放：患者、医生令牌一律 403，未登录 401。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AdminAccessTests {
+
+    private static final UserPrincipal PATIENT = new UserPrincipal(-1, "13900000000", Role.PATIENT);
+    private static final UserPrincipal DOCTOR = new UserPrincipal(-2, "13900000001", Role.DOCTOR);
+    private static final UserPrincipal ADMIN = new UserPrincipal(-3, "13900000002", Role.ADMIN);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void patientCannotUseAdminEndpoints() throws Exception {
+        mockMvc.perform(get("/api/admin/export/users").with(user(PATIENT))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/export/messages").with(user(PATIENT))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/dashboard").with(user(PATIENT))).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/doctors/import").contentType("text/csv").content("name\n")
+                .with(user(PATIENT))).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/files/migrate-layout").with(user(PATIENT)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void doctorCannotUseAdminEndpoints() throws Exception {
+        mockMvc.perform(get("/api/admin/export/users").with(user(DOCTOR))).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void anonymousIsUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/admin/export/users")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void adminCanUseAdminEndpoints() throws Exception {
+        mockMvc.perform(get("/api/admin/dashboard").with(user(ADMIN))).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,44 @@
+package com.mamaruo.hospitalinquiry.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * 经本机反向代理转发的请求按 X-Forwarded-For 还原客户端地址：
+ * 外部客户端不能借代理的内网地址免登录抓取指标。
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
+class ForwardedClientAddressTests {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void forwardedExternalClientIsNotTreatedAsInternal() throws Exception {
+        assertEquals(200, scrape(null));
+        assertEquals(401, scrape("203.0.113.7"));
+        // 客户端自带的伪造头排在前面，受信代理追加的才是真实来源
+        assertEquals(401, scrape("10.0.0.5, 203.0.113.7"));
+    }
+
+    private int scrape(String forwardedFor) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + port + "/hi/actuator/prometheus"));
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
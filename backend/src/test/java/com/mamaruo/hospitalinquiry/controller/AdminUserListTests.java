@@ -0,0 +1,91 @@
+package com.mamaruo.hospitalinquiry.controller;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.mamaruo.hospitalinquiry.entity.Role;
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+/**
+ * 管理端用户列表：按角色与前缀在数据库分页，通配符按字面匹配，超出上限的每页条数返回 400。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AdminUserListTests {
+
+    private static final UserPrincipal ADMIN = new UserPrincipal(-3, "13900000002", Role.ADMIN);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void pagesAndFiltersByRoleAndPrefix() throws Exception {
+        String prefix = "分页" + ThreadLocalRandom.current().nextInt(100_000, 1_000_000);
+        List<User> created = new ArrayList<>();
+        try {
+            for (String suffix : List.of("甲", "乙", "丙")) {
+                created.add(userRepository.save(newUser(prefix + suffix, Role.PATIENT)));
+            }
+            created.add(userRepository.save(newUser(prefix + "丁", Role.DOCTOR)));
+
+            mockMvc.perform(get("/api/admin/patients").param("keyword", prefix).param("size", "2")
+                            .with(user(ADMIN)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total_elements").value(3))
+                    .andExpect(jsonPath("$.total_pages").value(2))
+                    .andExpect(jsonPath("$.content.length()").value(2))
+                    .andExpect(jsonPath("$.content[0].name").value(prefix + "甲"));
+
+            mockMvc.perform(get("/api/admin/patients").param("keyword", prefix).param("size", "2").param("page", "1")
+                            .with(user(ADMIN)))
+                    .andExpect(jsonPath("$.content.length()").value(1))
+                    .andExpect(jsonPath("$.content[0].name").value(prefix + "丙"));
+
+            mockMvc.perform(get("/api/admin/users/search").param("keyword", prefix).with(user(ADMIN)))
+                    .andExpect(jsonPath("$.total_elements").value(4));
+
+            mockMvc.perform(get("/api/admin/doctors").param("keyword", prefix).with(user(ADMIN)))
+                    .andExpect(jsonPath("$.total_elements").value(1))
+                    .andExpect(jsonPath("$.content[0].name").value(prefix + "丁"));
+
+            // "_" 按字面匹配，不能当作单字符通配
+            String wildcard = prefix.substring(0, prefix.length() - 1) + "_";
+            mockMvc.perform(get("/api/admin/users/search").param("keyword", wildcard).with(user(ADMIN)))
+                    .andExpect(jsonPath("$.total_elements").value(0));
+        } finally {
+            userRepository.deleteAll(created);
+        }
+    }
+
+    @Test
+    void rejectsOversizedPages() throws Exception {
+        mockMvc.perform(get("/api/admin/users").param("size", "500").with(user(ADMIN)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static User newUser(String name, Role role) {
+        User user = new User();
+        user.setMobile(String.format("167%08d", ThreadLocalRandom.current().nextInt(100_000_000)));
+        user.setPassword("unused");
+        user.setName(name);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mamaruo.hospitalinquiry.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.mamaruo.hospitalinquiry.service.CatalogSnapshotService.Snapshot;
+import com.mamaruo.hospitalinquiry.service.CatalogVersionService;
+
+/**
+ * Accept-Encoding 按 q 值解析；304 校验使用实际会发送的 ETag。
+ */
+class ConditionalResponsesTests {
+
+    private static final byte[] BODY = "[]".getBytes();
+    private static final byte[] GZIP_BODY = {31, -117};
+
+    private final ConditionalResponses responses = new ConditionalResponses(new CatalogVersionService(event -> {}));
+
+    @Test
+    void gzipRequiresPositiveQuality() {
+        assertTrue(ConditionalResponses.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ConditionalResponses.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(ConditionalResponses.acceptsGzip("*"));
+        assertFalse(ConditionalResponses.acceptsGzip(null));
+        assertFalse(ConditionalResponses.acceptsGzip("gzip;q=0"));
+        assertFalse(ConditionalResponses.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(ConditionalResponses.acceptsGzip("*;q=0"));
+        assertFalse(ConditionalResponses.acceptsGzip("deflate, br"));
+    }
+
+    @Test
+    void refusedGzipGetsIdentityBody() {
+        ResponseEntity<byte[]> response = send(new Snapshot("c-1", BODY, GZIP_BODY), "gzip;q=0", null);
+
+        assertNotNull(response);
+        assertEquals("\"c-1\"", response.getHeaders().getETag());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, response.getBody());
+    }
+
+    @Test
+    void notModifiedComparesTheETagThatWouldBeSent() {
+        Snapshot compressed = new Snapshot("c-1", BODY, GZIP_BODY);
+        assertNull(send(compressed, "gzip", "\"c-1-gz\""));
+        assertNotNull(send(compressed, "gzip", "\"c-1\""));
+
+        // 降级渲染的快照没有压缩版本：即使客户端接受 gzip，也按未压缩的 ETag 校验
+        Snapshot uncompressed = new Snapshot("c-1", BODY, null);
+        assertNull(send(uncompressed, "gzip", "\"c-1\""));
+        ResponseEntity<byte[]> response = send(uncompressed, "gzip", "\"c-1-gz\"");
+        assertNotNull(response);
+        assertEquals("\"c-1\"", response.getHeaders().getETag());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private ResponseEntity<byte[]> send(Snapshot snapshot, String acceptEncoding, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/doctors");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return responses.snapshot(new ServletWebRequest(request, new MockHttpServletResponse()), () -> snapshot);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mamaruo.hospitalinquiry.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.mamaruo.hospitalinquiry.repository.FileLinkRepository;
+import com.mamaruo.hospitalinquiry.repository.StoredFileRepository;
+import com.mamaruo.hospitalinquiry.service.FileService;
+
+/**
+ * 文件下载：完整响应带 ETag 与私有长期缓存，条件请求返回 304，Range 请求返回 206。
+ */
+@SpringBootTest(properties = {
+        "app.upload.dir=target/test-uploads", "app.upload.chunk-size=1024", "app.upload.session-ttl-hours=0"})
+@AutoConfigureMockMvc
+class FileControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileLinkRepository fileLinkRepository;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Test
+    void servesConditionalAndRangeRequests() throws Exception {
+        String text = "range-test " + UUID.randomUUID();
+        String filename = fileService.store(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), "notes.txt");
+        Path stored = fileService.resolveFile(filename);
+        try {
+            String etag = "\"" + FileService.contentTag(filename) + "\"";
+            mockMvc.perform(get("/api/files/" + filename))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, private, immutable"))
+                    .andExpect(content().string(text));
+
+            mockMvc.perform(get("/api/files/" + filename).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+
+            mockMvc.perform(get("/api/files/" + filename).header(HttpHeaders.RANGE, "bytes=0-4"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-4/" + text.length()))
+                    .andExpect(content().string("range"));
+
+            mockMvc.perform(get("/api/files/" + filename).header(HttpHeaders.RANGE, "bytes=-4"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(content().string(text.substring(text.length() - 4)));
+        } finally {
+            fileLinkRepository.deleteById(filename);
+            storedFileRepository.release(stored.getFileName().toString());
+        }
+    }
+}
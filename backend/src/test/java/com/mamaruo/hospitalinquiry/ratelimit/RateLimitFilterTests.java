@@ -0,0 +1,90 @@
+package com.mamaruo.hospitalinquiry.ratelimit;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.mamaruo.hospitalinquiry.entity.Role;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 配额耗尽后返回 429 与 Retry-After；用户配额按校验后的用户 id 计，伪造令牌只能落到 IP 配额上。
+ */
+@SpringBootTest(properties = {
+        "app.rate-limit.policies[0].name=api",
+        "app.rate-limit.policies[0].patterns=/api/**",
+        "app.rate-limit.policies[0].per-user.capacity=3",
+        "app.rate-limit.policies[0].per-user.period=1m",
+        "app.rate-limit.policies[0].per-ip.capacity=5",
+        "app.rate-limit.policies[0].per-ip.period=1m"})
+@AutoConfigureMockMvc
+class RateLimitFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static RequestPostProcessor from(String ip) {
+        return request -> {
+            request.setRemoteAddr(ip);
+            return request;
+        };
+    }
+
+    @Test
+    void forgedTokensDoNotGetFreshQuota() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/api/departments").with(from("198.51.100.1"))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer forged-" + i))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/departments").with(from("198.51.100.1"))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer forged-next"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, matchesPattern("[1-9][0-9]*")));
+    }
+
+    @Test
+    void userQuotaFollowsVerifiedUser() throws Exception {
+        UserPrincipal first = new UserPrincipal(-101, "13900000101", Role.PATIENT);
+        UserPrincipal second = new UserPrincipal(-102, "13900000102", Role.PATIENT);
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/departments").with(from("198.51.100.2")).with(user(first)))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/departments").with(from("198.51.100.3")).with(user(first)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        mockMvc.perform(get("/api/departments").with(from("198.51.100.2")).with(user(second)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void chatQuotaIsPerUserAcrossSessions() {
+        RateLimitProperties properties = new RateLimitProperties(true, 64, List.of(),
+                new RateLimitProperties.Limit(2, Duration.ofMinutes(1)), null);
+        RateLimiter rateLimiter = new RateLimiter(properties, new SimpleMeterRegistry());
+
+        // 重连后会话 id 变了，用户 id 不变
+        assertTrue(rateLimiter.tryAcquireChat(7));
+        assertTrue(rateLimiter.tryAcquireChat(7));
+        assertFalse(rateLimiter.tryAcquireChat(7));
+        assertTrue(rateLimiter.tryAcquireChat(8));
+    }
+}
@@ -0,0 +1,84 @@
+package com.mamaruo.hospitalinquiry.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.mamaruo.hospitalinquiry.entity.User;
+
+/**
+ * 池化序列：批量插入每 50 行只取一次序列值并按批发送，并发写入的 id 互不冲突且都在已有数据之后。
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.mamaruo.hospitalinquiry.repository.SecondLevelCacheTests$ThreadStatementCounter")
+class PooledIdGenerationTests {
+
+    private static final AtomicInteger MOBILE_SUFFIX = new AtomicInteger();
+    private static final int MOBILE_PREFIX = ThreadLocalRandom.current().nextInt(100, 1000);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchInsertUsesFewStatements() {
+        List<User> users = newUsers(120);
+        try {
+            int statements = SecondLevelCacheTests.ThreadStatementCounter.count(() -> userRepository.saveAll(users));
+            // 逐行取号与插入需要 240 条语句；池化序列与批量插入只需取号 3 次、按批准备插入语句
+            assertTrue(statements < 20, "语句数: " + statements);
+        } finally {
+            userRepository.deleteAllByIdInBatch(users.stream().map(User::getId).toList());
+        }
+    }
+
+    @Test
+    void concurrentWritersGetDistinctIdsAfterExistingRows() throws Exception {
+        int maxBefore = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Integer.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Integer> ids = new ArrayList<>();
+        try {
+            List<Future<List<User>>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                writers.add(executor.submit(() -> userRepository.saveAll(newUsers(60))));
+            }
+            for (Future<List<User>> writer : writers) {
+                writer.get().forEach(user -> ids.add(user.getId()));
+            }
+            Set<Integer> distinct = new HashSet<>(ids);
+            assertEquals(240, distinct.size());
+            assertTrue(distinct.stream().allMatch(id -> id > maxBefore));
+        } finally {
+            executor.shutdownNow();
+            userRepository.deleteAllByIdInBatch(ids);
+        }
+    }
+
+    private static List<User> newUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setMobile(String.format("166%03d%05d", MOBILE_PREFIX, MOBILE_SUFFIX.incrementAndGet()));
+            user.setPassword("unused");
+            user.setName("序列测试");
+            users.add(user);
+        }
+        return users;
+    }
+}
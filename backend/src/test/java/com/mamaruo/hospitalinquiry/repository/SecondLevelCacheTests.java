@@ -0,0 +1,100 @@
+package com.mamaruo.hospitalinquiry.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.mamaruo.hospitalinquiry.entity.DoctorProfile;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 二级缓存与查询缓存生效后，重复查找不再发出 SQL。
+ * 只统计测试线程上的语句，不受启动后后台任务的查询干扰。
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.mamaruo.hospitalinquiry.repository.SecondLevelCacheTests$ThreadStatementCounter")
+class SecondLevelCacheTests {
+
+    @Autowired
+    private DoctorProfileRepository doctorProfileRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public static class ThreadStatementCounter implements StatementInspector {
+        private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+
+        static <T> int count(Supplier<T> action) {
+            int before = COUNT.get()[0];
+            action.get();
+            return COUNT.get()[0] - before;
+        }
+    }
+
+    @Test
+    void repeatedFindByIdIsServedFromCache() {
+        List<DoctorProfile> doctors = doctorProfileRepository.findAll(PageRequest.of(0, 1)).getContent();
+        assumeTrue(!doctors.isEmpty(), "需要至少一位医生的数据");
+        DoctorProfile doctor = doctors.get(0);
+        Integer doctorId = doctor.getId();
+        Integer userId = doctor.getUser().getId();
+        Integer departmentId = doctor.getDepartment().getId();
+        entityManagerFactory.getCache().evictAll();
+
+        assertTrue(ThreadStatementCounter.count(() -> doctorProfileRepository.findById(doctorId)) > 0);
+        assertEquals(0, ThreadStatementCounter.count(() -> doctorProfileRepository.findById(doctorId)));
+        assertEquals(0, ThreadStatementCounter.count(() -> departmentRepository.findById(departmentId)));
+        assertEquals(0, ThreadStatementCounter.count(() -> userRepository.findById(userId)));
+    }
+
+    @Test
+    void repeatedCacheableQueryIsServedFromCache() {
+        List<DoctorProfile> doctors = doctorProfileRepository.findAll(PageRequest.of(0, 1)).getContent();
+        assumeTrue(!doctors.isEmpty(), "需要至少一位医生的数据");
+        Integer userId = doctors.get(0).getUser().getId();
+        entityManagerFactory.getCache().evictAll();
+
+        assertTrue(ThreadStatementCounter.count(() -> doctorProfileRepository.findByUserId(userId)) > 0);
+        assertEquals(0, ThreadStatementCounter.count(() -> doctorProfileRepository.findByUserId(userId)));
+    }
+
+    @Test
+    void storedFileWritesDoNotEvictOtherRegions() {
+        List<DoctorProfile> doctors = doctorProfileRepository.findAll(PageRequest.of(0, 1)).getContent();
+        assumeTrue(!doctors.isEmpty(), "需要至少一位医生的数据");
+        Integer doctorId = doctors.get(0).getId();
+        entityManagerFactory.getCache().evictAll();
+        doctorProfileRepository.findById(doctorId);
+
+        String filename = "second-level-cache-test.bin";
+        storedFileRepository.acquire(filename, "0".repeat(64), 0);
+        storedFileRepository.release(filename);
+
+        assertTrue(entityManagerFactory.getCache().contains(DoctorProfile.class, doctorId));
+    }
+}
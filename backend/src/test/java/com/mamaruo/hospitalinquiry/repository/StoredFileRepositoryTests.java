@@ -0,0 +1,71 @@
+package com.mamaruo.hospitalinquiry.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 引用计数：每次登记加一，释放时减一，最后一次释放删除记录；并发释放既不漏减也不重复删除。
+ */
+@SpringBootTest
+class StoredFileRepositoryTests {
+
+    private static final String SHA256 = "0".repeat(64);
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Test
+    void lastReleaseDeletesRecord() {
+        String filename = "refcount-" + UUID.randomUUID() + ".bin";
+        storedFileRepository.acquire(filename, SHA256, 0);
+        storedFileRepository.acquire(filename, SHA256, 0);
+        assertEquals(2, refCount(filename));
+
+        assertEquals(0, storedFileRepository.release(filename));
+        assertEquals(1, refCount(filename));
+
+        assertEquals(1, storedFileRepository.release(filename));
+        assertFalse(storedFileRepository.existsById(filename));
+        assertEquals(0, storedFileRepository.release(filename));
+    }
+
+    @Test
+    void concurrentReleasesDeleteExactlyOnce() throws Exception {
+        String filename = "refcount-" + UUID.randomUUID() + ".bin";
+        int references = 8;
+        for (int i = 0; i < references; i++) {
+            storedFileRepository.acquire(filename, SHA256, 0);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(references);
+        try {
+            List<Future<Integer>> releases = new ArrayList<>();
+            for (int i = 0; i < references; i++) {
+                releases.add(executor.submit(() -> storedFileRepository.release(filename)));
+            }
+            int deleted = 0;
+            for (Future<Integer> release : releases) {
+                deleted += release.get();
+            }
+            assertEquals(1, deleted);
+            assertFalse(storedFileRepository.existsById(filename));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int refCount(String filename) {
+        return storedFileRepository.findById(filename).orElseThrow().getRefCount();
+    }
+}
@@ -0,0 +1,78 @@
+package com.mamaruo.hospitalinquiry.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorDto;
+import com.mamaruo.hospitalinquiry.service.DepartmentService;
+import com.mamaruo.hospitalinquiry.service.DoctorService;
+import com.mamaruo.hospitalinquiry.websocket.DoctorPresenceRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 姓名前缀优先、按擅长领域命中，医生与科室变更后索引随之更新。
+ */
+class DoctorSearchIndexTests {
+
+    private final DoctorService doctorService = mock(DoctorService.class);
+    private final DoctorPresenceRegistry presenceRegistry = new DoctorPresenceRegistry(new SimpleMeterRegistry());
+    private final DoctorSearchIndex index = new DoctorSearchIndex(doctorService, presenceRegistry);
+
+    @BeforeEach
+    void setUp() {
+        when(doctorService.getAllDoctors()).thenReturn(List.of(
+                doctor(1, "张伟", 10, "心内科", "高血压、冠心病"),
+                doctor(2, "王张伟", 10, "心内科", "心律失常"),
+                doctor(3, "李娜", 20, "皮肤科", "湿疹、痤疮")));
+        index.rebuild();
+    }
+
+    @Test
+    void namePrefixRanksFirst() {
+        List<DoctorDto> results = index.search("张伟", 10);
+        assertEquals(List.of(1, 2), ids(results));
+    }
+
+    @Test
+    void matchesExpertiseAndDepartment() {
+        assertEquals(List.of(1), ids(index.search("高血压", 10)));
+        assertEquals(List.of(3), ids(index.search("皮肤", 10)));
+        assertTrue(index.search("骨科", 10).isEmpty());
+    }
+
+    @Test
+    void onlineDoctorsRankHigherAmongEqualMatches() {
+        presenceRegistry.connected(1002);
+        List<DoctorDto> results = index.search("心内科", 10);
+        assertEquals(List.of(2, 1), ids(results));
+        assertTrue(results.get(0).online());
+    }
+
+    @Test
+    void followsDoctorAndDepartmentChanges() {
+        index.onDoctorChanged(new DoctorService.DoctorChangedEvent(doctor(3, "李娜", 20, "皮肤科", "银屑病")));
+        assertTrue(index.search("湿疹", 10).isEmpty());
+        assertEquals(List.of(3), ids(index.search("银屑病", 10)));
+
+        index.onDepartmentChanged(new DepartmentService.DepartmentChangedEvent(20, "皮肤性病科"));
+        assertEquals(List.of(3), ids(index.search("性病", 10)));
+        assertEquals("皮肤性病科", index.search("李娜", 1).get(0).departmentName());
+    }
+
+    private static DoctorDto doctor(int id, String name, int departmentId, String department, String expertise) {
+        return new DoctorDto(id, 1000 + id, name, "1380000000" + id, department, departmentId,
+                "主治医师", expertise, null, true, null);
+    }
+
+    private static List<Integer> ids(List<DoctorDto> doctors) {
+        return doctors.stream().map(DoctorDto::id).toList();
+    }
+}
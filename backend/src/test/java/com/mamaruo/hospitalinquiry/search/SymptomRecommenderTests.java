@@ -0,0 +1,94 @@
+package com.mamaruo.hospitalinquiry.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mamaruo.hospitalinquiry.entity.dto.DoctorDto;
+import com.mamaruo.hospitalinquiry.entity.dto.RecommendationDto;
+import com.mamaruo.hospitalinquiry.repository.InquiryRepository;
+import com.mamaruo.hospitalinquiry.service.CatalogVersionService;
+import com.mamaruo.hospitalinquiry.service.DoctorService;
+import com.mamaruo.hospitalinquiry.websocket.DoctorPresenceRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 按病情描述推荐：历史问诊与擅长领域决定科室排序，停诊医生不推荐，目录变更后重建索引。
+ */
+class SymptomRecommenderTests {
+
+    private final DoctorService doctorService = mock(DoctorService.class);
+    private final InquiryRepository inquiryRepository = mock(InquiryRepository.class);
+    private final SymptomRecommender recommender = new SymptomRecommender(
+            doctorService, inquiryRepository, new DoctorPresenceRegistry(new SimpleMeterRegistry()));
+
+    @AfterEach
+    void tearDown() {
+        recommender.shutdown();
+    }
+
+    @Test
+    void ranksDepartmentsAndSkipsUnavailableDoctors() throws InterruptedException {
+        when(doctorService.getAllDoctors()).thenReturn(List.of(
+                doctor(1, 10, "心内科", "高血压、冠心病", true),
+                doctor(2, 10, "心内科", "心律失常", false),
+                doctor(3, 20, "皮肤科", "湿疹、痤疮", true)));
+        List<InquiryRepository.SymptomSample> history = List.of(
+                sample(1, "胸闷心慌，血压偏高"),
+                sample(3, "手臂起红疹，瘙痒"));
+        when(inquiryRepository.findRecentSymptoms(any(Pageable.class))).thenReturn(history);
+
+        RecommendationDto result = rebuildAndRecommend("最近总是胸闷，血压高");
+
+        assertEquals(10, result.departments().get(0).id());
+        assertEquals(List.of(1), result.doctors().stream().map(DoctorDto::id).toList());
+    }
+
+    @Test
+    void catalogChangeRebuildsTheModel() throws InterruptedException {
+        when(doctorService.getAllDoctors()).thenReturn(List.of(doctor(3, 20, "皮肤科", "湿疹、痤疮", true)));
+        when(inquiryRepository.findRecentSymptoms(any(Pageable.class))).thenReturn(List.of());
+        assertEquals(20, rebuildAndRecommend("湿疹反复发作").departments().get(0).id());
+
+        when(doctorService.getAllDoctors()).thenReturn(List.of(
+                doctor(3, 20, "皮肤科", "痤疮", true),
+                doctor(4, 30, "过敏反应科", "湿疹、荨麻疹", true)));
+        assertEquals(30, rebuildAndRecommend("湿疹反复发作").departments().get(0).id());
+    }
+
+    // 索引在后台线程构建，轮询直到新模型生效
+    private RecommendationDto rebuildAndRecommend(String symptoms) throws InterruptedException {
+        ReflectionTestUtils.setField(recommender, "historySize", 100);
+        RecommendationDto before = recommender.recommend(symptoms, 5);
+        recommender.onCatalogChanged(new CatalogVersionService.CatalogChangedEvent(1));
+        for (int i = 0; i < 100; i++) {
+            RecommendationDto result = recommender.recommend(symptoms, 5);
+            if (!result.departments().isEmpty() && !result.equals(before)) {
+                return result;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("推荐索引未在预期时间内重建");
+    }
+
+    private static DoctorDto doctor(int id, int departmentId, String department, String expertise, boolean available) {
+        return new DoctorDto(id, 1000 + id, "医生" + id, "1380000000" + id, department, departmentId,
+                "主治医师", expertise, null, available, null);
+    }
+
+    private static InquiryRepository.SymptomSample sample(int doctorId, String description) {
+        InquiryRepository.SymptomSample sample = mock(InquiryRepository.SymptomSample.class);
+        when(sample.getDoctorId()).thenReturn(doctorId);
+        when(sample.getSymptomDescription()).thenReturn(description);
+        return sample;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 已写入的值一定命中；未写入的值假阳性率接近设计值。
+ */
+class BloomFilterTests {
+
+    @Test
+    void noFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(String.format("138%08d", i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(String.format("138%08d", i)));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(String.format("139%08d", i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "假阳性: " + falsePositives);
+    }
+}
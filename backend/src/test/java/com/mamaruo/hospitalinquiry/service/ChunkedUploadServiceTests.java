@@ -0,0 +1,128 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.mamaruo.hospitalinquiry.entity.dto.UploadInitRequest;
+import com.mamaruo.hospitalinquiry.entity.dto.UploadStatus;
+
+/**
+ * 分片上传：乱序与重传后按缺失分片续传，校验通过才入库；过期清理不打断进行中的写入。
+ * 分片大小设为 1 KB、会话存活时间设为 0，清理时所有空闲会话都算过期。
+ */
+@SpringBootTest(properties = {
+        "app.upload.dir=target/test-uploads", "app.upload.chunk-size=1024", "app.upload.session-ttl-hours=0"})
+class ChunkedUploadServiceTests {
+
+    private static final int OWNER = -201;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Test
+    void resumesMissingChunksAndCompletes() throws Exception {
+        byte[] data = randomBytes(2500);
+        UploadStatus status = chunkedUploadService.init(
+                OWNER, new UploadInitRequest("scan.bin", (long) data.length, sha256(data)));
+        String id = status.uploadId();
+        assertEquals(List.of(0, 1, 2), status.missingChunks());
+
+        chunkedUploadService.writeChunk(OWNER, id, 2048, chunk(data, 2048, 2500));
+        chunkedUploadService.writeChunk(OWNER, id, 0, chunk(data, 0, 1024));
+        // 断线导致的残缺分片不计入已收
+        assertThrows(IllegalArgumentException.class,
+                () -> chunkedUploadService.writeChunk(OWNER, id, 1024, chunk(data, 1024, 1500)));
+        assertEquals(List.of(1), chunkedUploadService.status(OWNER, id).missingChunks());
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.complete(OWNER, id));
+
+        status = chunkedUploadService.writeChunk(OWNER, id, 1024, chunk(data, 1024, 2048));
+        assertEquals(List.of(), status.missingChunks());
+        assertEquals(data.length, status.receivedBytes());
+
+        String filename = chunkedUploadService.complete(OWNER, id).join();
+        assertArrayEquals(data, Files.readAllBytes(fileService.resolveFile(filename)));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.status(OWNER, id));
+    }
+
+    @Test
+    void checksumMismatchRequiresFullResend() throws Exception {
+        byte[] data = randomBytes(1500);
+        String id = chunkedUploadService.init(OWNER, new UploadInitRequest("scan.bin", (long) data.length, "0".repeat(64)))
+                .uploadId();
+        chunkedUploadService.writeChunk(OWNER, id, 0, chunk(data, 0, 1024));
+        chunkedUploadService.writeChunk(OWNER, id, 1024, chunk(data, 1024, 1500));
+
+        CompletableFuture<String> completion = chunkedUploadService.complete(OWNER, id);
+        CompletionException failure = assertThrows(CompletionException.class, completion::join);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(List.of(0, 1), chunkedUploadService.status(OWNER, id).missingChunks());
+        chunkedUploadService.abort(OWNER, id);
+    }
+
+    @Test
+    void expiryKeepsSessionsWithWritesInProgress() throws Exception {
+        byte[] data = randomBytes(1024);
+        String idle = chunkedUploadService.init(OWNER, new UploadInitRequest("idle.bin", 1024L, sha256(data)))
+                .uploadId();
+        String busy = chunkedUploadService.init(OWNER, new UploadInitRequest("busy.bin", 1024L, sha256(data)))
+                .uploadId();
+
+        PipedOutputStream client = new PipedOutputStream();
+        PipedInputStream body = new PipedInputStream(client);
+        CompletableFuture<UploadStatus> write = CompletableFuture.supplyAsync(() -> {
+            try {
+                return chunkedUploadService.writeChunk(OWNER, busy, 0, body);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        client.write(data, 0, 512);
+        client.flush();
+        // 写入线程先登记为写入者再读取请求体，管道被读空即已登记
+        while (body.available() > 0) {
+            Thread.onSpinWait();
+        }
+
+        chunkedUploadService.expireSessions();
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.status(OWNER, idle));
+
+        client.write(data, 512, 512);
+        client.close();
+        assertEquals(List.of(), write.join().missingChunks());
+        chunkedUploadService.abort(OWNER, busy);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+
+    private static ByteArrayInputStream chunk(byte[] data, int from, int to) {
+        return new ByteArrayInputStream(data, from, to - from);
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,29 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 导出时以公式字符开头的文本加单引号前缀，数值不受影响；导入时前缀被还原。
+ */
+class CsvFormatTests {
+
+    @Test
+    void formulaCellsAreGuardedAndRestored() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvFormat.writeRecord(out, "=HYPERLINK(\"x\")", "+1", "-2", "@SUM(A1)", "\tcmd", "普通文本", -5, null);
+
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\",'+1,'-2,'@SUM(A1),'\tcmd,普通文本,-5,\r\n", out.toString());
+
+        List<String> record = CsvFormat.readRecord(new BufferedReader(new StringReader(out.toString())));
+        List<String> restored = record.stream().map(CsvFormat::stripFormulaGuard).toList();
+        assertEquals(List.of("=HYPERLINK(\"x\")", "+1", "-2", "@SUM(A1)", "\tcmd", "普通文本", "-5", ""), restored);
+    }
+}
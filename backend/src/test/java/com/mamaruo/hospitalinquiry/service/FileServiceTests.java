@@ -0,0 +1,123 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.mamaruo.hospitalinquiry.ratelimit.TooManyRequestsException;
+import com.mamaruo.hospitalinquiry.repository.FileLinkRepository;
+import com.mamaruo.hospitalinquiry.repository.StoredFileRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 相同内容只存一份，但每次上传得到各自的随机公开名；摘要文件名不能直接访问；
+ * 根目录中的早期文件在搬入分片目录前后都能找到；I/O 队列已满时直接以 429 失败。
+ */
+@SpringBootTest(properties = {
+        "app.upload.dir=target/test-uploads", "app.upload.chunk-size=1024", "app.upload.session-ttl-hours=0"})
+class FileServiceTests {
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private FileLinkRepository fileLinkRepository;
+
+    @Test
+    void sameContentSharesOneStoredFileBehindDistinctPublicNames() throws Exception {
+        byte[] data = ("file-service-test " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        String first = fileService.store(new ByteArrayInputStream(data), "report.txt");
+        String second = fileService.store(new ByteArrayInputStream(data), "copy.txt");
+        try {
+            assertNotEquals(first, second);
+            assertTrue(FileService.isImmutableName(first) && first.endsWith(".txt"));
+
+            Path stored = fileService.resolveFile(first);
+            assertEquals(stored, fileService.resolveFile(second));
+            assertArrayEquals(data, Files.readAllBytes(stored));
+
+            String storedName = stored.getFileName().toString();
+            assertEquals(2, storedFileRepository.findById(storedName).orElseThrow().getRefCount());
+            assertThrows(IllegalArgumentException.class, () -> fileService.resolveFile(storedName));
+            storedFileRepository.release(storedName);
+            storedFileRepository.release(storedName);
+        } finally {
+            fileLinkRepository.deleteAllById(List.of(first, second));
+        }
+    }
+
+    @Test
+    void legacyFileIsFoundBeforeAndAfterMovingToShard() throws Exception {
+        String filename = UUID.randomUUID() + ".txt";
+        Path flat = Path.of("target/test-uploads").toAbsolutePath().normalize().resolve(filename);
+        Files.createDirectories(flat.getParent());
+        Files.writeString(flat, "legacy");
+        Path sharded = flat.resolveSibling(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename);
+        try {
+            assertEquals(flat, fileService.resolveFile(filename));
+
+            assertTrue(fileService.moveToShard(filename));
+            assertFalse(Files.exists(flat));
+            assertEquals(sharded, fileService.resolveFile(filename));
+            assertEquals("legacy", Files.readString(fileService.resolveFile(filename)));
+        } finally {
+            Files.deleteIfExists(flat);
+            Files.deleteIfExists(sharded);
+        }
+    }
+
+    @Test
+    void fullIoQueueFailsFastWithTooManyRequests() throws Exception {
+        FileService service = new FileService(storedFileRepository, fileLinkRepository, 1, 1, new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = service.supplyIo("test", () -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            });
+            CompletableFuture<Boolean> queued = service.supplyIo("test", () -> true);
+            CompletableFuture<Boolean> rejected = service.supplyIo("test", () -> true);
+
+            ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(TooManyRequestsException.class, e.getCause());
+            release.countDown();
+            assertTrue(running.get(5, TimeUnit.SECONDS) && queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void unknownPublicNameIsNotFound() {
+        assertThrows(IllegalArgumentException.class, () -> fileService.resolveFile(UUID.randomUUID() + ".png"));
+        assertThrows(IllegalArgumentException.class, () -> fileService.resolveFile("../application.yml"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.mamaruo.hospitalinquiry.repository.FileLinkRepository;
+import com.mamaruo.hospitalinquiry.repository.StoredFileRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 请求线程不生成变体：未生成时返回 null 并在后台生成，同一变体的并发请求只触发一次生成。
+ */
+@SpringBootTest(properties = {
+        "app.upload.dir=target/test-uploads", "app.upload.chunk-size=1024", "app.upload.session-ttl-hours=0"})
+class ImageVariantServiceTests {
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileLinkRepository fileLinkRepository;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentRequestsShareOneGeneration() throws Exception {
+        String filename = fileService.store(new ByteArrayInputStream(noisePng(1200, 900)), "photo.png");
+        double before = generatedCount();
+        ExecutorService requests = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Path>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(() -> imageVariantService.variant(filename, ImageVariantService.Size.THUMB));
+            }
+            // 首批请求都在生成完成之前到达，均返回 null（调用方改发原图）
+            for (Future<Path> result : requests.invokeAll(calls)) {
+                assertNull(result.get());
+            }
+
+            Path variant = awaitVariant(filename);
+            assertTrue(Files.size(variant) > 0);
+            BufferedImage thumb = ImageIO.read(variant.toFile());
+            assertEquals(160, Math.max(thumb.getWidth(), thumb.getHeight()));
+            assertEquals(1, generatedCount() - before);
+        } finally {
+            requests.shutdownNow();
+            String storedName = fileService.resolveFile(filename).getFileName().toString();
+            fileLinkRepository.deleteById(filename);
+            storedFileRepository.release(storedName);
+        }
+    }
+
+    private Path awaitVariant(String filename) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        Path variant;
+        while ((variant = imageVariantService.variant(filename, ImageVariantService.Size.THUMB)) == null) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待变体生成超时");
+            Thread.sleep(20);
+        }
+        return variant;
+    }
+
+    private double generatedCount() {
+        return meterRegistry.get("files.image.variants").tag("result", "generated").counter().count();
+    }
+
+    // 随机噪点图：内容各不相同，不会与其他测试的文件去重到一起
+    private static byte[] noisePng(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.entity.UserPrincipal;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+/**
+ * 已缓存的令牌声明不绕过吊销检查：改密（令牌版本递增）或禁用后，同一令牌立即失效。
+ */
+@SpringBootTest
+class JwtServiceTests {
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void cachedTokenIsRejectedAfterRevocation() {
+        User user = userRepository.saveAndFlush(newUser());
+        try {
+            String token = jwtService.generateToken(user);
+            UserPrincipal principal = jwtService.resolvePrincipal(token).orElseThrow();
+            assertEquals(user.getId(), principal.getId());
+            // 第二次命中声明缓存
+            assertTrue(jwtService.resolvePrincipal(token).isPresent());
+
+            User revoked = userService.revokeTokens(user);
+            assertTrue(jwtService.verify(token).isPresent(), "签名与有效期仍然有效");
+            assertTrue(jwtService.resolvePrincipal(token).isEmpty());
+
+            String reissued = jwtService.generateToken(revoked);
+            assertTrue(jwtService.resolvePrincipal(reissued).isPresent());
+
+            revoked.setEnabled(false);
+            tokenVersionRegistry.update(userRepository.saveAndFlush(revoked));
+            assertTrue(jwtService.resolvePrincipal(reissued).isEmpty());
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    void tamperedTokenIsNotServedFromCache() {
+        User user = userRepository.saveAndFlush(newUser());
+        try {
+            String token = jwtService.generateToken(user);
+            assertTrue(jwtService.verify(token).isPresent());
+            // 改动签名中间的一个字符（末位字符含填充位，改动未必改变签名）
+            int i = token.length() - 5;
+            String tampered = token.substring(0, i) + (token.charAt(i) == 'A' ? 'B' : 'A') + token.substring(i + 1);
+            assertTrue(jwtService.verify(tampered).isEmpty());
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    private static User newUser() {
+        User user = new User();
+        user.setMobile(String.format("198%08d", ThreadLocalRandom.current().nextInt(100_000_000)));
+        user.setPassword("unused");
+        user.setName("令牌测试");
+        return user;
+    }
+}
@@ -0,0 +1,99 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+/**
+ * 插入数超过设计容量后按新规模重建，重建前后已写入的手机号与身份证号都不会漏判；
+ * 唯一约束冲突按约束名翻译为对应提示。
+ */
+@SpringBootTest(properties = "app.signup.bloom-min-capacity=16")
+class RegisteredUserFilterTests {
+
+    private static final AtomicInteger SUFFIX = new AtomicInteger();
+    private static final int PREFIX = ThreadLocalRandom.current().nextInt(100, 1000);
+
+    @Autowired
+    private RegisteredUserFilter registeredUserFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void rebuildKeepsEveryInsertedUser() throws InterruptedException {
+        await(() -> registeredUserFilter.capacity() > 0 && !registeredUserFilter.mightContainMobile("16500000000"));
+        long capacity = registeredUserFilter.capacity();
+
+        List<User> users = userRepository.saveAll(newUsers((int) capacity + 20));
+        try {
+            users.forEach(registeredUserFilter::add);
+            await(() -> registeredUserFilter.capacity() > capacity);
+            for (User user : users) {
+                assertTrue(registeredUserFilter.mightContainMobile(user.getMobile()), user.getMobile());
+                // 末位 X 大小写不敏感
+                assertTrue(registeredUserFilter.mightContainIdCard(user.getIdCard().toLowerCase()), user.getIdCard());
+            }
+        } finally {
+            userRepository.deleteAllByIdInBatch(users.stream().map(User::getId).toList());
+        }
+    }
+
+    @Test
+    void constraintViolationsNameTheDuplicateField() {
+        User existing = userRepository.saveAndFlush(newUsers(1).get(0));
+        try {
+            User sameMobile = newUsers(1).get(0);
+            sameMobile.setMobile(existing.getMobile());
+            assertEquals("该手机号已被注册", duplicateMessage(sameMobile));
+
+            User sameIdCard = newUsers(1).get(0);
+            sameIdCard.setIdCard(existing.getIdCard());
+            assertEquals("该身份证号已被注册", duplicateMessage(sameIdCard));
+        } finally {
+            userRepository.deleteById(existing.getId());
+        }
+    }
+
+    private String duplicateMessage(User user) {
+        DataIntegrityViolationException e = assertThrows(DataIntegrityViolationException.class,
+                () -> userRepository.saveAndFlush(user));
+        return RegisteredUserFilter.duplicateUser(e).getMessage();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待过滤器构建超时");
+            Thread.sleep(20);
+        }
+    }
+
+    private static List<User> newUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int n = SUFFIX.incrementAndGet();
+            User user = new User();
+            user.setMobile(String.format("165%03d%05d", PREFIX, n));
+            user.setIdCard(String.format("110101%03d%08dX", PREFIX, n));
+            user.setPassword("unused");
+            user.setName("查重测试");
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,68 @@
+package com.mamaruo.hospitalinquiry.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.mamaruo.hospitalinquiry.entity.User;
+import com.mamaruo.hospitalinquiry.repository.UserRepository;
+
+/**
+ * 从数据库刷新吊销表：近期吊销的旧版本令牌失效；缺少吊销时间的历史记录按刚刚吊销处理。
+ */
+@SpringBootTest
+class TokenVersionRegistryTests {
+
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void refreshKeepsRecentRevocations() {
+        User user = userService.revokeTokens(userRepository.saveAndFlush(newUser()));
+        try {
+            tokenVersionRegistry.run();
+            assertFalse(tokenVersionRegistry.isValid(user.getId(), 0));
+            assertTrue(tokenVersionRegistry.isValid(user.getId(), 1));
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    void revocationWithoutTimestampIsTreatedAsRecent() {
+        User user = userRepository.saveAndFlush(newUser());
+        try {
+            // 吊销时间列新增之前的吊销记录：版本已递增但没有时间
+            jdbcTemplate.update("UPDATE users SET token_version = 1, tokens_revoked_at = NULL WHERE id = ?",
+                    user.getId());
+            tokenVersionRegistry.run();
+            assertFalse(tokenVersionRegistry.isValid(user.getId(), 0));
+            assertTrue(tokenVersionRegistry.isValid(user.getId(), 1));
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    private static User newUser() {
+        User user = new User();
+        user.setMobile(String.format("199%08d", ThreadLocalRandom.current().nextInt(100_000_000)));
+        user.setPassword("unused");
+        user.setName("吊销测试");
+        return user;
+    }
+}
@@ -0,0 +1,34 @@
+package com.mamaruo.hospitalinquiry.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 聊天图片按文件头识别格式，扩展名伪装的其他内容无法通过。
+ */
+class ImageFormatDetectionTests {
+
+    private static String detect(byte[] header) {
+        return ChatWebSocketHandler.detectImageFormat(header, header.length);
+    }
+
+    @Test
+    void recognizesSupportedFormats() {
+        assertEquals("jpeg", detect(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+        assertEquals("png", detect(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13}));
+        assertEquals("gif", detect("GIF89a\0\0".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("webp", detect("RIFF\0\0\0\0WEBP".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void rejectsOtherContent() {
+        assertNull(detect("<html><body>".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(detect("MZ\u0090\0\3\0\0\0\4\0\0\0".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(detect("RIFF\0\0\0\0WAVE".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(detect(new byte[] {(byte) 0xFF, (byte) 0xD8}));
+    }
+}
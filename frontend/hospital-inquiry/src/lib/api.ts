@@ -23,6 +23,14 @@ export type UserResponse = {
   enabled: boolean
 }
 
+export type PageResponse<T> = {
+  content: T[]
+  page: number
+  size: number
+  total_elements: number
+  total_pages: number
+}
+
 export type LoginResponse = {
   token: string
   user: UserResponse
@@ -56,6 +64,7 @@ export type DoctorDto = {
   expertise: string
   photo_url: string | null
   available: boolean
+  online?: boolean  // 仅检索/推荐结果返回，目录接口请用 getDoctorPresence 批量查询
 }
 
 // 问诊人
@@ -229,6 +238,23 @@ export function getDoctorById(id: number) {
   return get<DoctorDto>(`/api/doctors/public/${id}`)
 }
 
+// 批量查询医生在线状态（userId -> 是否在线）
+export function getDoctorPresence(userIds: number[]) {
+  return get<Record<number, boolean>>(`/api/doctors/public/presence?userIds=${userIds.join(',')}`)
+}
+
+// 接口单次最多查询 500 位，超出时分批查询后合并
+const PRESENCE_BATCH = 500
+
+export async function getDoctorsPresence(doctors: DoctorDto[]) {
+  const userIds = [...new Set(doctors.map(d => d.user_id))]
+  const batches: Promise<Record<number, boolean>>[] = []
+  for (let i = 0; i < userIds.length; i += PRESENCE_BATCH) {
+    batches.push(getDoctorPresence(userIds.slice(i, i + PRESENCE_BATCH)))
+  }
+  return Object.assign({}, ...(await Promise.all(batches))) as Record<number, boolean>
+}
+
 export function getAllDoctors() {
   return get<DoctorDto[]>('/api/doctors')
 }
@@ -320,6 +346,11 @@ export function getMessagesByInquiry(inquiryId: number) {
   return get<MessageDto[]>(`/api/messages/inquiry/${inquiryId}`)
 }
 
+// 图片的缩放变体：thumb 用于头像等小图，medium 用于聊天预览；原图仍用原地址
+export function sizedImageUrl(url: string, size: 'thumb' | 'medium') {
+  return `${url}${url.includes('?') ? '&' : '?'}size=${size}`
+}
+
 // 文件上传
 export async function uploadFile(file: File): Promise<{ filename: string; url: string }> {
   const token = getToken()
@@ -340,21 +371,29 @@ export async function uploadFile(file: File): Promise<{ filename: string; url: s
   return response.json()
 }
 
-// 管理员相关
-export function getAllPatients() {
-  return get<UserResponse[]>('/api/admin/patients')
+// 管理员相关（分页，page 从 0 开始；keyword 按手机号或姓名前缀匹配）
+function pageQuery(page: number, size: number, params: Record<string, string | undefined> = {}) {
+  const query = new URLSearchParams({ page: String(page), size: String(size) })
+  for (const [key, value] of Object.entries(params)) {
+    if (value) query.set(key, value)
+  }
+  return query.toString()
+}
+
+export function getAllPatients(page = 0, size = 20, keyword?: string) {
+  return get<PageResponse<UserResponse>>(`/api/admin/patients?${pageQuery(page, size, { keyword })}`)
 }
 
-export function getAllDoctorUsers() {
-  return get<UserResponse[]>('/api/admin/doctors')
+export function getAllDoctorUsers(page = 0, size = 20, keyword?: string) {
+  return get<PageResponse<UserResponse>>(`/api/admin/doctors?${pageQuery(page, size, { keyword })}`)
 }
 
-export function getAllUsers() {
-  return get<UserResponse[]>('/api/admin/users')
+export function getAllUsers(page = 0, size = 20, role?: Role) {
+  return get<PageResponse<UserResponse>>(`/api/admin/users?${pageQuery(page, size, { role })}`)
 }
 
-export function searchUsers(keyword: string) {
-  return get<UserResponse[]>(`/api/admin/users/search?keyword=${encodeURIComponent(keyword)}`)
+export function searchUsers(keyword: string, page = 0, size = 20, role?: Role) {
+  return get<PageResponse<UserResponse>>(`/api/admin/users/search?${pageQuery(page, size, { keyword, role })}`)
 }
 
 export function toggleUserStatus(id: number) {
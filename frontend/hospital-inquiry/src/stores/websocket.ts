@@ -4,6 +4,8 @@ import type { MessageDto, MessageType } from '@/lib/api'
 import { useAuthStore } from './auth'
 
 const WS_BASE_URL = (import.meta.env.VITE_WS_BASE_URL as string | undefined) ?? 'ws://localhost:8081/hi'
+// 图片按二进制帧分段发送，单帧不超过服务端的 binary-buffer-size
+const IMAGE_FRAME_SIZE = 64 * 1024
 
 export type WebSocketStatus = 'disconnected' | 'connecting' | 'connected' | 'error'
 
@@ -24,6 +26,20 @@ export const useWebSocketStore = defineStore('websocket', () => {
 
   const isConnected = computed(() => status.value === 'connected')
 
+  // 正在发送的图片：收到自己发出的图片消息回显时完成，期间收到错误或连接断开则失败
+  let pendingImage: { resolve: () => void; reject: (reason: Error) => void } | null = null
+
+  function settleImage(failure?: string) {
+    if (!pendingImage) return
+    const { resolve, reject } = pendingImage
+    pendingImage = null
+    if (failure) {
+      reject(new Error(failure))
+    } else {
+      resolve()
+    }
+  }
+
   function connect(inquiryId: number) {
     if (socket.value?.readyState === WebSocket.OPEN) {
       if (currentInquiryId.value === inquiryId) {
@@ -60,8 +76,12 @@ export const useWebSocketStore = defineStore('websocket', () => {
         
         if (data.type === 'message' && data.data) {
           messages.value.push(data.data)
+          if (data.data.type === 'IMAGE' && data.data.sender_id === authStore.user?.id) {
+            settleImage()
+          }
         } else if (data.type === 'error') {
           error.value = data.message || '未知错误'
+          settleImage(error.value)
         }
       } catch (e) {
         console.error('解析 WebSocket 消息失败:', e)
@@ -77,6 +97,7 @@ export const useWebSocketStore = defineStore('websocket', () => {
     socket.value.onclose = (e) => {
       console.log('WebSocket 关闭:', e.reason)
       status.value = 'disconnected'
+      settleImage('连接已断开')
       
       // 如果非正常关闭且还在当前问诊页面，尝试重连
       if (e.code !== 1000 && currentInquiryId.value === inquiryId) {
@@ -114,6 +135,26 @@ export const useWebSocketStore = defineStore('websocket', () => {
     return true
   }
 
+  // 在连接内直接上传图片：先声明文件名与大小，再逐段发送二进制帧，服务端收齐后广播图片消息。
+  // 返回的 Promise 在收到该图片消息的回显后完成，服务端报错或连接断开时失败
+  function sendImage(file: File): Promise<void> {
+    if (!socket.value || socket.value.readyState !== WebSocket.OPEN) {
+      error.value = '连接已断开'
+      return Promise.reject(new Error('连接已断开'))
+    }
+
+    // 服务端每个连接同一时刻只收一张图片，新的 image_start 会放弃上一张
+    settleImage('已改为发送新的图片')
+    const acknowledged = new Promise<void>((resolve, reject) => {
+      pendingImage = { resolve, reject }
+    })
+    socket.value.send(JSON.stringify({ type: 'image_start', filename: file.name, size: file.size }))
+    for (let offset = 0; offset < file.size; offset += IMAGE_FRAME_SIZE) {
+      socket.value.send(file.slice(offset, offset + IMAGE_FRAME_SIZE))
+    }
+    return acknowledged
+  }
+
   function setInitialMessages(initialMessages: MessageDto[]) {
     messages.value = initialMessages
   }
@@ -127,6 +168,7 @@ export const useWebSocketStore = defineStore('websocket', () => {
     connect,
     disconnect,
     sendMessage,
+    sendImage,
     setInitialMessages,
   }
 })